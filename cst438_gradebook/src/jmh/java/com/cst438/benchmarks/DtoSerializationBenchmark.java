@@ -0,0 +1,91 @@
+package com.cst438.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.cst438.domain.AssignmentListDTO;
+import com.cst438.domain.CourseDTOG;
+import com.cst438.domain.GradebookDTO;
+import com.cst438.domain.GradebookRow;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * JSON of the transfer objects returned by the REST apis and sent to the 
+ * registration service, with one entry per student (per assignment for 
+ * AssignmentListDTO, a roster of 3000 is a very busy instructor).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DtoSerializationBenchmark {
+	
+	@Param({ "30", "300", "3000" })
+	int roster;
+	
+	ObjectMapper objectMapper = new ObjectMapper();
+	
+	GradebookDTO gradebook;
+	AssignmentListDTO assignmentList;
+	CourseDTOG courseGrades;
+	
+	@Setup
+	public void setup() {
+		gradebook = new GradebookDTO();
+		gradebook.assignmentId = 1;
+		gradebook.assignmentName = "Assignment 1";
+		for (GradebookRow row : Rosters.gradebookRows(roster)) {
+			GradebookDTO.Grade grade = new GradebookDTO.Grade();
+			grade.enrollmentId = row.enrollmentId;
+			grade.assignmentGradeId = (row.assignmentGradeId == null) ? 0 : row.assignmentGradeId;
+			grade.name = row.studentName;
+			grade.email = row.studentEmail;
+			grade.grade = (row.score == null) ? "" : row.score;
+			gradebook.grades.add(grade);
+		}
+		
+		assignmentList = new AssignmentListDTO();
+		for (int i = 1; i <= roster; i++) {
+			assignmentList.assignments.add(new AssignmentListDTO.AssignmentDTO(i, 40000 + i / Rosters.ASSIGNMENTS, 
+					"Assignment " + i, "2021-09-01", "Course " + i / Rosters.ASSIGNMENTS));
+		}
+		
+		courseGrades = new CourseDTOG();
+		courseGrades.course_id = 40442;
+		List<CourseDTOG.GradeDTO> grades = new ArrayList<>(roster);
+		for (int i = 1; i <= roster; i++) {
+			CourseDTOG.GradeDTO g = new CourseDTOG.GradeDTO();
+			g.student_email = Rosters.email(i);
+			g.student_name = Rosters.name(i);
+			g.grade = "B";
+			grades.add(g);
+		}
+		courseGrades.grades = grades;
+	}
+	
+	@Benchmark
+	public byte[] gradebook() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(gradebook);
+	}
+	
+	@Benchmark
+	public byte[] assignmentList() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(assignmentList);
+	}
+	
+	@Benchmark
+	public byte[] courseGrades() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(courseGrades);
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.cst438.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.cst438.domain.EnrollmentGradeSummary;
+
+/*
+ * letter grades of a course.
+ *   letterGrades  - the letter of every student from an average, as calcFinalGrades 
+ *                   does for students without a summary
+ *   summarize     - summing and counting every student's scores and making the 
+ *                   summary with its letter, as GradeWriteService.refreshSummaries 
+ *                   does with the totals from the database
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FinalGradeBenchmark {
+	
+	@Param({ "30", "300", "3000" })
+	int roster;
+	
+	Integer[][] scores;
+	double[] averages;
+	
+	@Setup
+	public void setup() {
+		scores = Rosters.scores(roster);
+		averages = new double[roster];
+		for (int s = 0; s < roster; s++) {
+			int total = 0, count = 0;
+			for (Integer score : scores[s]) {
+				if (score != null) {
+					total += score;
+					count++;
+				}
+			}
+			averages[s] = (count == 0) ? 0.0 : (double) total / count;
+		}
+	}
+	
+	@Benchmark
+	public void letterGrades(Blackhole bh) {
+		for (double average : averages) {
+			bh.consume(EnrollmentGradeSummary.letterGrade(average));
+		}
+	}
+	
+	@Benchmark
+	public void summarize(Blackhole bh) {
+		for (int s = 0; s < roster; s++) {
+			BigDecimal total = BigDecimal.ZERO;
+			int count = 0;
+			for (Integer score : scores[s]) {
+				if (score != null) {
+					total = total.add(BigDecimal.valueOf(score));
+					count++;
+				}
+			}
+			bh.consume(new EnrollmentGradeSummary(s + 1, total, count));
+		}
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.cst438.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.cst438.domain.GradebookRow;
+
+/*
+ * made up students and scores for the benchmarks.  the same seed is used 
+ * every run so results can be compared between changes.
+ */
+public class Rosters {
+	
+	public static final int ASSIGNMENTS = 12;	// assignments per course
+	
+	public static String name(int i) {
+		return "Student " + i;
+	}
+	
+	public static String email(int i) {
+		return "student" + i + "@csumb.edu";
+	}
+	
+	// scores[student][assignment], about one in ten missing (null)
+	public static Integer[][] scores(int students) {
+		Random random = new Random(438);
+		Integer[][] scores = new Integer[students][ASSIGNMENTS];
+		for (int s = 0; s < students; s++) {
+			for (int a = 0; a < ASSIGNMENTS; a++) {
+				scores[s][a] = (random.nextInt(10) == 0) ? null : 50 + random.nextInt(51);
+			}
+		}
+		return scores;
+	}
+	
+	// the gradebook rows of one assignment, in page order; about one in five without a grade yet
+	public static List<GradebookRow> gradebookRows(int students) {
+		Random random = new Random(438);
+		List<GradebookRow> rows = new ArrayList<>(students);
+		for (int i = 1; i <= students; i++) {
+			boolean graded = random.nextInt(5) != 0;
+			rows.add(new GradebookRow(i, name(i), email(i), graded ? i : null, graded ? Integer.toString(50 + random.nextInt(51)) : null));
+		}
+		return rows;
+	}
+
+}
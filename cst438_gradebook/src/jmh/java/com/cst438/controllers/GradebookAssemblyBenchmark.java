@@ -0,0 +1,65 @@
+package com.cst438.controllers;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.cst438.benchmarks.Rosters;
+import com.cst438.domain.GradebookDTO;
+import com.cst438.domain.GradebookRow;
+
+/*
+ * building the GradebookDTO of getGradebook from the rows of the gradebook query.  
+ * in this package to call GradeBookController.assembleGradebook.
+ *   all       - the whole roster with every field
+ *   page      - the first 50 rows and the next page cursor
+ *   gradeOnly - the whole roster with fields=grade
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GradebookAssemblyBenchmark {
+	
+	static final Set<String> ALL_FIELDS = new HashSet<>(Arrays.asList("name", "email", "grade"));
+	static final Set<String> GRADE_ONLY = Collections.singleton("grade");
+	
+	@Param({ "30", "300", "3000" })
+	int roster;
+	
+	List<GradebookRow> rows;
+	List<GradebookRow> firstPage;
+	
+	@Setup
+	public void setup() {
+		rows = Rosters.gradebookRows(roster);
+		firstPage = rows.subList(0, Math.min(51, rows.size()));
+	}
+	
+	@Benchmark
+	public GradebookDTO all() {
+		return GradeBookController.assembleGradebook(1, "Assignment 1", rows, null, ALL_FIELDS);
+	}
+	
+	@Benchmark
+	public GradebookDTO page() {
+		return GradeBookController.assembleGradebook(1, "Assignment 1", firstPage, 50, ALL_FIELDS);
+	}
+	
+	@Benchmark
+	public GradebookDTO gradeOnly() {
+		return GradeBookController.assembleGradebook(1, "Assignment 1", rows, null, GRADE_ONLY);
+	}
+
+}
@@ -1,49 +1,108 @@
 package com.cst438.controllers;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.server.ResponseStatusException;
 
-import com.cst438.domain.Course;
-import com.cst438.domain.CourseRepository;
-import com.cst438.domain.Enrollment;
 import com.cst438.domain.EnrollmentDTO;
-import com.cst438.domain.EnrollmentRepository;
+import com.cst438.domain.EnrollmentResultDTO;
+import com.cst438.services.EnrollmentIngestService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 @RestController
 public class EnrollmentController {
 
+	private static final String NDJSON = "application/x-ndjson";
+	
 	@Autowired
-	CourseRepository courseRepository;
-
+	EnrollmentIngestService enrollmentIngestService;
+	
 	@Autowired
-	EnrollmentRepository enrollmentRepository;
+	ObjectMapper objectMapper;
+	
+	@Value("${gradebook.enrollment-bulk.chunk-size:500}")
+	int bulkChunkSize;
+	
+	private ObjectWriter resultWriter;
+	
+	@PostConstruct
+	void createResultWriter() {
+		resultWriter = objectMapper.writerFor(EnrollmentResultDTO.class);
+	}
 
 	/*
 	 * endpoint used by registration service to add an enrollment to an existing
-	 * course.
+	 * course.  posting the same student and course again returns the existing 
+	 * enrollment instead of adding another one.
 	 */
 	@PostMapping("/enrollment")
-	@Transactional
 	public EnrollmentDTO addEnrollment(@RequestBody EnrollmentDTO enrollmentDTO) {
-		
-		//TODO  complete this method in homework 4
-		Enrollment e = new Enrollment();
-		e.setStudentEmail(enrollmentDTO.studentEmail);
-		e.setStudentName(enrollmentDTO.studentName);
-		Course c = courseRepository.findById(enrollmentDTO.course_id).orElse(null);
-		if(c == null) {
-			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Course id not found.");
+		return enrollmentIngestService.enroll(enrollmentDTO);
+	}
+	
+	/*
+	 * add many enrollments in one request.  the body is NDJSON (one EnrollmentDTO 
+	 * per line) or a JSON array of EnrollmentDTO.  rows are read as they arrive and 
+	 * added bulkChunkSize at a time, each chunk in its own transaction, so memory 
+	 * use does not depend on the size of the roster.  the response is NDJSON with 
+	 * one EnrollmentResultDTO per row, written after each chunk is committed.  
+	 * a body that can not be parsed ends the response with an "invalid" row; the 
+	 * chunks before it are kept.
+	 */
+	@PostMapping("/enrollment/bulk")
+	public void addEnrollments(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		response.setContentType(NDJSON);
+		OutputStream out = response.getOutputStream();
+		List<EnrollmentDTO> chunk = new ArrayList<>(bulkChunkSize);
+		int row = 0;
+		try (MappingIterator<EnrollmentDTO> rows = objectMapper.readerFor(EnrollmentDTO.class).readValues(request.getInputStream())) {
+			while (rows.hasNextValue()) {
+				chunk.add(rows.nextValue());
+				if (chunk.size() == bulkChunkSize) {
+					row = addChunk(out, row, chunk);
+				}
+			}
+		} catch (JsonProcessingException e) {
+			row = addChunk(out, row, chunk);
+			writeResult(out, new EnrollmentResultDTO(row + 1, null, 0, "invalid: " + e.getOriginalMessage()));
+			return;
 		}
-		e.setCourse(c);
-		e = enrollmentRepository.save(e);
-		enrollmentDTO.id = e.getId();
-		return enrollmentDTO;
+		addChunk(out, row, chunk);
+	}
+	
+	// add the chunk, write its results and return the number of the last row written
+	private int addChunk(OutputStream out, int row, List<EnrollmentDTO> chunk) throws IOException {
+		if (chunk.isEmpty()) {
+			return row;
+		}
+		List<String> status = enrollmentIngestService.enrollAll(chunk);
+		for (int i = 0; i < chunk.size(); i++) {
+			EnrollmentDTO dto = chunk.get(i);
+			writeResult(out, new EnrollmentResultDTO(++row, dto.studentEmail, dto.course_id, status.get(i)));
+		}
+		out.flush();
+		chunk.clear();
+		return row;
+	}
+	
+	private void writeResult(OutputStream out, EnrollmentResultDTO result) throws IOException {
+		out.write(resultWriter.writeValueAsBytes(result));
+		out.write('\n');
 	}
 	
 	@PutMapping("/checkin/")
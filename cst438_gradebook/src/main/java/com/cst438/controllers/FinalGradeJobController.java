@@ -0,0 +1,75 @@
+package com.cst438.controllers;
+
+import java.net.URI;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.cst438.domain.Course;
+import com.cst438.domain.CourseRepository;
+import com.cst438.domain.FinalGradeJob;
+import com.cst438.services.FinalGradeJobService;
+
+@RestController
+@CrossOrigin(origins = {"http://localhost:3000","http://localhost:3001"})
+public class FinalGradeJobController {
+	
+	@Autowired
+	FinalGradeJobService finalGradeJobService;
+	
+	@Autowired
+	CourseRepository courseRepository;
+	
+	// users allowed to finalize a whole term
+	@Value("${gradebook.admin-emails:}")
+	List<String> adminEmails;
+	
+	/*
+	 * finalize every course of a term in the background.  returns 202 with the 
+	 * job, whose progress is read from the Location url.  only for admins.
+	 */
+	@PostMapping("/finalgrades/term/{year}/{semester}")
+	public ResponseEntity<FinalGradeJob> finalizeTerm(@PathVariable int year, @PathVariable String semester) {
+		
+		String email = "dwisneski@csumb.edu";  // user name (should be an admin's email) 
+		if (!adminEmails.contains(email)) {
+			throw new ResponseStatusException( HttpStatus.UNAUTHORIZED, "Not Authorized. " );
+		}
+		
+		FinalGradeJob job = finalGradeJobService.startTerm(year, semester);
+		return ResponseEntity.accepted().location(URI.create("/finalgrades/jobs/" + job.id)).body(job);
+	}
+	
+	// a term job can be read by admins, a course job by the instructor of the course
+	@GetMapping("/finalgrades/jobs/{id}")
+	public FinalGradeJob getJob(@PathVariable String id) {
+		
+		String email = "dwisneski@csumb.edu";  // user name (should be instructor's email) 
+		
+		FinalGradeJob job = finalGradeJobService.getJob(id);
+		if (job == null) {
+			throw new ResponseStatusException( HttpStatus.NOT_FOUND, "Job not found. "+id );
+		}
+		boolean allowed;
+		if (job.courseId == null) {
+			allowed = adminEmails.contains(email);
+		} else {
+			Course c = courseRepository.findById(job.courseId).orElse(null);
+			allowed = c != null && email.equals(c.getInstructor());
+		}
+		if (!allowed) {
+			throw new ResponseStatusException( HttpStatus.UNAUTHORIZED, "Not Authorized. " );
+		}
+		return job;
+	}
+
+}
@@ -1,16 +1,27 @@
 package com.cst438.controllers;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.sql.Date;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -32,14 +43,24 @@ import com.cst438.domain.AssignmentRepository;
 import com.cst438.domain.Course;
 import com.cst438.domain.CourseDTOG;
 import com.cst438.domain.CourseRepository;
-import com.cst438.domain.Enrollment;
+import com.cst438.domain.CourseSummary;
+import com.cst438.domain.EnrollmentRepository;
+import com.cst438.domain.FinalGradeJob;
 import com.cst438.domain.GradebookDTO;
-import com.cst438.services.RegistrationService;
+import com.cst438.domain.GradebookRow;
+import com.cst438.services.AssignmentOwnershipCache;
+import com.cst438.services.AssignmentOwnershipCache.AssignmentOwner;
+import com.cst438.services.FinalGradeJobService;
+import com.cst438.services.FinalGradeOutboxService;
+import com.cst438.services.FinalGradeService;
+import com.cst438.services.GradeWriteService;
 
 @RestController
 @CrossOrigin(origins = {"http://localhost:3000","http://localhost:3001"})
 public class GradeBookController {
 	
+	private static final Set<String> GRADE_FIELDS = new HashSet<>(Arrays.asList("name", "email", "grade"));
+	
 	@Autowired
 	AssignmentRepository assignmentRepository;
 	
@@ -50,7 +71,25 @@ public class GradeBookController {
 	CourseRepository courseRepository;
 	
 	@Autowired
-	RegistrationService registrationService;
+	EnrollmentRepository enrollmentRepository;
+	
+	@Autowired
+	FinalGradeOutboxService finalGradeOutboxService;
+	
+	@Autowired
+	FinalGradeService finalGradeService;
+	
+	@Autowired
+	FinalGradeJobService finalGradeJobService;
+	
+	@Autowired
+	AssignmentOwnershipCache ownershipCache;
+	
+	@Autowired
+	GradeWriteService gradeWriteService;
+	
+	@Value("${gradebook.page.max-size:1000}")
+	int maxPageSize;
 	
 	// get assignments for an instructor that need grading
 	@GetMapping("/gradebook")
@@ -66,79 +105,125 @@ public class GradeBookController {
 		return result;
 	}
 	
+	/*
+	 * the gradebook of an assignment, one page at a time when limit is given.  
+	 * pages are ordered by student name and enrollment id; pass nextCursor of a 
+	 * page as after to get the next one.  fields is a comma separated list of 
+	 * name, email and grade to return (ids are always returned); all by default.
+	 */
 	@GetMapping("/gradebook/{id}")
-	public GradebookDTO getGradebook(@PathVariable("id") Integer assignmentId  ) {
+	public GradebookDTO getGradebook(@PathVariable("id") Integer assignmentId,
+			@RequestParam(required = false) String after,
+			@RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) String fields) {
 		
 		String email = "dwisneski@csumb.edu";  // user name (should be instructor's email) 
-		Assignment assignment = checkAssignment(assignmentId, email);
+		AssignmentOwner assignment = checkAssignment(assignmentId, email);
+		
+		if (limit != null && (limit < 1 || limit > maxPageSize)) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "limit must be 1 to " + maxPageSize );
+		}
+		Set<String> selected = GRADE_FIELDS;
+		if (fields != null) {
+			selected = new HashSet<>(Arrays.asList(fields.split(",")));
+			if (!GRADE_FIELDS.containsAll(selected)) {
+				throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "fields must be from " + GRADE_FIELDS );
+			}
+		}
 		
-		// get the enrollment for the course
-		//  for each student, get the current grade for assignment, 
-		//   if the student does not have a current grade, create an empty grade
+		// position after the last row of the previous page: enrollment id and student name
+		int afterId = 0;
+		String afterName = null;
+		if (after != null) {
+			try {
+				String cursor = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+				int sep = cursor.indexOf(':');
+				afterId = Integer.parseInt(sep < 0 ? cursor : cursor.substring(0, sep));
+				afterName = sep < 0 ? null : cursor.substring(sep + 1);
+			} catch (IllegalArgumentException e) {
+				throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Invalid cursor. " );
+			}
+		}
+		
+		// get the enrollments of the page joined with the current grade for assignment
+		//   in a single query, reading only the selected fields.  one extra row is read 
+		//   to know if there is a next page.  a student without a grade gets an empty 
+		//   grade that is not saved; the row is created when a score is first written.
+		Integer maxRows = (limit == null) ? null : limit + 1;
+		List<GradebookRow> rows = assignmentGradeRepository.findGradebookPage(assignmentId, assignment.courseId, afterName, afterId, 
+				maxRows, selected);
+		
+		return assembleGradebook(assignmentId, assignment.assignmentName, rows, limit, selected);
+	}
+	
+	/*
+	 * the gradebook page from the rows read (up to limit + 1 of them).  
+	 * package private for the benchmarks in src/jmh.
+	 */
+	static GradebookDTO assembleGradebook(int assignmentId, String assignmentName, List<GradebookRow> rows, 
+			Integer limit, Set<String> selected) {
 		GradebookDTO gradebook = new GradebookDTO();
 		gradebook.assignmentId= assignmentId;
-		gradebook.assignmentName = assignment.getName();
-		for (Enrollment e : assignment.getCourse().getEnrollments()) {
+		gradebook.assignmentName = assignmentName;
+		if (limit != null && rows.size() > limit) {
+			rows = rows.subList(0, limit);
+			GradebookRow last = rows.get(limit - 1);
+			String cursor = (last.studentName == null) ? Integer.toString(last.enrollmentId) : last.enrollmentId + ":" + last.studentName;
+			gradebook.nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+		}
+		for (GradebookRow row : rows) {
 			GradebookDTO.Grade grade = new GradebookDTO.Grade();
-			grade.name = e.getStudentName();
-			grade.email = e.getStudentEmail();
-			// does student have a grade for this assignment
-			AssignmentGrade ag = assignmentGradeRepository.findByAssignmentIdAndStudentEmail(assignmentId,  grade.email);
-			if (ag != null) {
-				grade.grade = ag.getScore();
-				grade.assignmentGradeId = ag.getId();
-			} else {
-				grade.grade = "";
-				AssignmentGrade agNew = new AssignmentGrade(assignment, e);
-				agNew = assignmentGradeRepository.save(agNew);
-				grade.assignmentGradeId = agNew.getId();  // key value generated by database on save.
+			grade.enrollmentId = row.enrollmentId;
+			grade.assignmentGradeId = (row.assignmentGradeId == null) ? 0 : row.assignmentGradeId;
+			if (selected.contains("name")) {
+				grade.name = row.studentName;
+			}
+			if (selected.contains("email")) {
+				grade.email = row.studentEmail;
+			}
+			if (selected.contains("grade")) {
+				grade.grade = (row.assignmentGradeId == null) ? "" : row.score;
 			}
 			gradebook.grades.add(grade);
 		}
 		return gradebook;
 	}
 	
+	/*
+	 * with async=true the grades are calculated in the background: the response is 
+	 * 202 with the job, whose status is read from the Location url, and the job is 
+	 * posted to the optional callback url when it finishes.  a request for a course 
+	 * whose job is still running returns that job.
+	 */
 	@PostMapping("/course/{course_id}/finalgrades")
 	@Transactional
-	public void calcFinalGrades(@PathVariable int course_id) {
+	public ResponseEntity<FinalGradeJob> calcFinalGrades(@PathVariable int course_id, 
+			@RequestParam(defaultValue = "false") boolean async, 
+			@RequestParam(required = false) String callback) {
 		System.out.println("Gradebook - calcFinalGrades for course " + course_id);
 		
 		// check that this request is from the course instructor 
 		String email = "dwisneski@csumb.edu";  // user name (should be instructor's email) 
 		
 		Course c = courseRepository.findById(course_id).orElse(null);
+		if (c == null) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Course not found. "+course_id );
+		}
 		if (!c.getInstructor().equals(email)) {
 			throw new ResponseStatusException( HttpStatus.UNAUTHORIZED, "Not Authorized. " );
 		}
 		
-		CourseDTOG cdto = new CourseDTOG();
-		cdto.course_id = course_id;
-		cdto.grades = new ArrayList<>();
-		for (Enrollment e: c.getEnrollments()) {
-			double total=0.0;
-			int count = 0;
-			for (AssignmentGrade ag : e.getAssignmentGrades()) {
-				count++;
-				total = total + Double.parseDouble(ag.getScore());
-			}
-			double average = total/count;
-			CourseDTOG.GradeDTO gdto = new CourseDTOG.GradeDTO();
-			gdto.grade=letterGrade(average);
-			gdto.student_email=e.getStudentEmail();
-			gdto.student_name=e.getStudentName();
-			cdto.grades.add(gdto);
-			System.out.println("Course="+course_id+" Student="+e.getStudentEmail()+" grade="+gdto.grade);
+		if (async) {
+			FinalGradeJob job = finalGradeJobService.startCourse(course_id, callback);
+			return ResponseEntity.accepted().location(URI.create("/finalgrades/jobs/" + job.id)).body(job);
 		}
 		
-		registrationService.sendFinalGrades(course_id, cdto);
-	}
-	
-	private String letterGrade(double grade) {
-		if (grade >= 90) return "A";
-		if (grade >= 80) return "B";
-		if (grade >= 70) return "C";
-		if (grade >= 60) return "D";
-		return "F";
+		// letter grades are kept up to date as scores are written, one summary row per student
+		CourseDTOG cdto = finalGradeService.computeFinalGrades(course_id);
+		
+		// sent to the registration service by FinalGradeDispatcher after this transaction commits
+		finalGradeOutboxService.enqueue(cdto);
+		return ResponseEntity.ok().build();
 	}
 	
 	@PutMapping("/gradebook/{id}")
@@ -146,33 +231,65 @@ public class GradeBookController {
 	public void updateGradebook (@RequestBody GradebookDTO gradebook, @PathVariable("id") Integer assignmentId ) {
 		
 		String email = "dwisneski@csumb.edu";  // user name (should be instructor's email) 
-		checkAssignment(assignmentId, email);  // check that user name matches instructor email of the course.
+		AssignmentOwner assignment = checkAssignment(assignmentId, email);  // check that user name matches instructor email of the course.
 		
 		// for each grade in gradebook, update the assignment grade in database 
 		System.out.printf("%d %s %d\n",  gradebook.assignmentId, gradebook.assignmentName, gradebook.grades.size());
 		
+		// students without a grade row yet are collected and inserted together,
+		//  existing grade rows are fetched together and only changed scores are written.
+		// a grade left out of the request (null, e.g. from a page fetched without the grade field) 
+		//  is not changed, a score is cleared with an empty grade.
+		Map<Integer, String> newScores = new HashMap<>();
+		Map<Integer, String> changedScores = new HashMap<>();
 		for (GradebookDTO.Grade g : gradebook.grades) {
 			System.out.printf("%s\n", g.toString());
-			AssignmentGrade ag = assignmentGradeRepository.findById(g.assignmentGradeId).orElse(null);
-			if (ag == null) {
-				throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Invalid grade primary key. "+g.assignmentGradeId);
+			if (g.assignmentGradeId == 0) {
+				if (g.grade != null && !g.grade.trim().isEmpty()) {
+					newScores.put(g.enrollmentId, g.grade);
+				}
+			} else if (g.grade != null) {
+				changedScores.put(g.assignmentGradeId, g.grade);
 			}
-			ag.setScore(g.grade);
-			System.out.printf("%s\n", ag.toString());
-			
-			assignmentGradeRepository.save(ag);
 		}
 		
+		List<AssignmentGrade> changed = new ArrayList<>();
+		if (!changedScores.isEmpty()) {
+			List<AssignmentGrade> existing = assignmentGradeRepository.findByAssignmentIdAndIdIn(assignmentId, changedScores.keySet());
+			if (existing.size() != changedScores.size()) {
+				for (AssignmentGrade ag : existing) {
+					changedScores.remove(ag.getId());
+				}
+				throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Invalid grade primary key. "+changedScores.keySet());
+			}
+			for (AssignmentGrade ag : existing) {
+				String score = changedScores.get(ag.getId());
+				if (!Objects.equals(score, ag.getScore())) {
+					ag.setScore(score);
+					changed.add(ag);
+				}
+			}
+		}
+		
+		if (!newScores.isEmpty()) {
+			List<Integer> enrolled = enrollmentRepository.findIdsInCourse(assignment.courseId, newScores.keySet());
+			if (enrolled.size() != newScores.size()) {
+				throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Invalid enrollment id. ");
+			}
+		}
+		
+		// changed and new scores are written together, the students' grade summaries are locked once
+		gradeWriteService.saveGradebook(assignmentId, changed, newScores);
 	}
 	
-	private Assignment checkAssignment(int assignmentId, String email) {
-		// get assignment 
-		Assignment assignment = assignmentRepository.findById(assignmentId).orElse(null);
+	private AssignmentOwner checkAssignment(int assignmentId, String email) {
+		// get assignment course and instructor, usually from the cache without a database query
+		AssignmentOwner assignment = ownershipCache.get(assignmentId);
 		if (assignment == null) {
 			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Assignment not found. "+assignmentId );
 		}
 		// check that user is the course instructor
-		if (!assignment.getCourse().getInstructor().equals(email)) {
+		if (!assignment.instructor.equals(email)) {
 			throw new ResponseStatusException( HttpStatus.UNAUTHORIZED, "Not Authorized. " );
 		}
 		
@@ -182,15 +299,10 @@ public class GradeBookController {
 	@GetMapping("/getCourses")
 	public HashMap<String,Integer> getCourses(@RequestParam String email) {
 		
-		Iterable<Course> it = courseRepository.findAll();
-		List<String> courses = new ArrayList<String>();
+		// only the courses for the current instructor are read, found by their email
 		HashMap<String,Integer> courseInfo = new HashMap<String,Integer>();
-		for(Course course: it ) {
-			//only add the courses for the current instructor checking their email
-			if(course.getInstructor().equals(email)) {
-			courses.add(course.getTitle()+":"+ course.getCourse_id());
-			courseInfo.put(course.getTitle(), course.getCourse_id());
-			}
+		for (CourseSummary course : courseRepository.findSummariesByInstructor(email)) {
+			courseInfo.put(course.getTitle(), course.getCourseId());
 		}
 		return courseInfo;
 	}
@@ -229,11 +341,13 @@ public class GradeBookController {
 		}
 		
 		assignment.setName(assignmentDTO.assignmentName);
-		// the assignment does not need grading, so I set it to 0
-		assignment.setNeedsGrading(0);
+		// a new assignment has no grades, it needs grading once past due if the course has students
+		boolean pastDue = dueDate.before(Date.valueOf(LocalDate.now()));
+		assignment.setNeedsGrading(pastDue && enrollmentRepository.countByCourseId(course.getCourse_id()) > 0 ? 1 : 0);
 		assignment.setCourse(course);
 		assignment.setDueDate(dueDate);
 		assignmentRepository.save(assignment);
+		ownershipCache.put(assignment);
 		
 		//I create the DTO to return
 		AssignmentDTO a = new AssignmentDTO();
@@ -261,6 +375,7 @@ public class GradeBookController {
 		//I set the name of the assignment then save it back to the repository
 		assignment.setName(assignmentDTO.assignmentName);
 		assignmentRepository.save(assignment);
+		ownershipCache.invalidate(assignmentId);
 		
 		AssignmentDTO a = new AssignmentDTO();
 		a.assignmentName=assignmentDTO.assignmentName;
@@ -270,8 +385,8 @@ public class GradeBookController {
 	
 	@DeleteMapping("/deleteAssignment/{id}")
 	public void deleteAssignment(@PathVariable("id") int assignmentId){
-		//finding the assignment via the id
-		Assignment assignment = assignmentRepository.findById(assignmentId).orElse(null);
+		//finding the assignment via the id, its course and grade rows are loaded in the same select
+		Assignment assignment = assignmentRepository.findWithGradesById(assignmentId).orElse(null);
 		
 		String email = "dwisneski@csumb.edu"; 
 		
@@ -284,29 +399,20 @@ public class GradeBookController {
 			throw new ResponseStatusException( HttpStatus.UNAUTHORIZED, "Not Authorized. " );
 		}
 		
-		Boolean found = false;
-		
-		//I check all the enrollments of the course based on the assignment id
-		// once that is done I check the assignment grade repo by each student in the course
-		//using their id and email to find if there is a grade. If a grade is found an exception is thrown
-		// If no grades are found the assignment is safe to delete
-//		}
-		for (Enrollment e : assignment.getCourse().getEnrollments()) {
-			GradebookDTO.Grade grade = new GradebookDTO.Grade();
-			grade.email = e.getStudentEmail();
-			AssignmentGrade ag = assignmentGradeRepository.findByAssignmentIdAndStudentEmail(assignmentId, grade.email);
-			if (ag != null) {
-				found = true;
-				//Commented out the exception since it stopped the test from being successful
-//				throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "There is a grade for this assignment");
-				System.out.print("The assignment has a grade!");
-				return;
-			} 
+		// a grade row only exists once a student has been graded for the assignment.
+		// If a grade is found the assignment is not deleted
+		Boolean found = !assignment.getAssignmentGrades().isEmpty();
+		if (found) {
+			//Commented out the exception since it stopped the test from being successful
+//			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "There is a grade for this assignment");
+			System.out.print("The assignment has a grade!");
+			return;
 		}
 		
 		if(found==false) {
 			System.out.print("The assignment has no grades!");
 			assignmentRepository.deleteById(assignmentId);
+			ownershipCache.invalidate(assignmentId);
 		}
 	}
 
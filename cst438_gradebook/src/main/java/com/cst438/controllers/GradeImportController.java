@@ -0,0 +1,55 @@
+package com.cst438.controllers;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.cst438.domain.Course;
+import com.cst438.domain.CourseRepository;
+import com.cst438.services.GradeImportService;
+
+@RestController
+@CrossOrigin(origins = {"http://localhost:3000","http://localhost:3001"})
+public class GradeImportController {
+	
+	@Autowired
+	CourseRepository courseRepository;
+	
+	@Autowired
+	GradeImportService gradeImportService;
+	
+	/*
+	 * import scores of a course from a CSV body (see GradeImportService for the columns).
+	 * the response is NDJSON: a line for each row that was not imported and a last 
+	 * line with the number of rows read and imported.
+	 */
+	@PostMapping("/course/{course_id}/grades/import")
+	public void importGrades(@PathVariable int course_id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+		
+		String email = "dwisneski@csumb.edu";  // user name (should be instructor's email) 
+		
+		Course c = courseRepository.findById(course_id).orElse(null);
+		if (c == null) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Course not found. "+course_id );
+		}
+		if (!c.getInstructor().equals(email)) {
+			throw new ResponseStatusException( HttpStatus.UNAUTHORIZED, "Not Authorized. " );
+		}
+		
+		if (request.getCharacterEncoding() == null) {
+			request.setCharacterEncoding("UTF-8");
+		}
+		response.setContentType("application/x-ndjson");
+		gradeImportService.importCourse(course_id, request.getReader(), response.getOutputStream());
+	}
+
+}
@@ -0,0 +1,90 @@
+package com.cst438.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.cst438.domain.Course;
+import com.cst438.domain.CourseRepository;
+import com.cst438.services.AssignmentOwnershipCache;
+import com.cst438.services.AssignmentOwnershipCache.AssignmentOwner;
+import com.cst438.services.GradeExportService;
+
+/*
+ * gradebook exports.  the response is written by GradeExportService while 
+ * the rows are read from the database, after this controller returned.
+ */
+@RestController
+@CrossOrigin(origins = {"http://localhost:3000","http://localhost:3001"})
+public class GradebookExportController {
+	
+	@Autowired
+	CourseRepository courseRepository;
+	
+	@Autowired
+	AssignmentOwnershipCache ownershipCache;
+	
+	@Autowired
+	GradeExportService gradeExportService;
+	
+	// every student and assignment of the course
+	@GetMapping("/course/{course_id}/export")
+	public ResponseEntity<StreamingResponseBody> exportCourse(@PathVariable int course_id, 
+			@RequestParam(defaultValue = GradeExportService.CSV) String format) {
+		
+		String email = "dwisneski@csumb.edu";  // user name (should be instructor's email) 
+		
+		Course c = courseRepository.findById(course_id).orElse(null);
+		if (c == null) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Course not found. "+course_id );
+		}
+		if (!c.getInstructor().equals(email)) {
+			throw new ResponseStatusException( HttpStatus.UNAUTHORIZED, "Not Authorized. " );
+		}
+		checkFormat(format);
+		
+		return export("course-" + course_id, format, out -> gradeExportService.writeCourse(course_id, format, out));
+	}
+	
+	// every student of the course of the assignment
+	@GetMapping("/assignment/{id}/export")
+	public ResponseEntity<StreamingResponseBody> exportAssignment(@PathVariable("id") int assignmentId, 
+			@RequestParam(defaultValue = GradeExportService.CSV) String format) {
+		
+		String email = "dwisneski@csumb.edu";  // user name (should be instructor's email) 
+		
+		AssignmentOwner assignment = ownershipCache.get(assignmentId);
+		if (assignment == null) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Assignment not found. "+assignmentId );
+		}
+		if (!assignment.instructor.equals(email)) {
+			throw new ResponseStatusException( HttpStatus.UNAUTHORIZED, "Not Authorized. " );
+		}
+		checkFormat(format);
+		
+		return export("assignment-" + assignmentId, format, out -> gradeExportService.writeAssignment(assignmentId, format, out));
+	}
+	
+	private void checkFormat(String format) {
+		if (!GradeExportService.CSV.equals(format) && !GradeExportService.NDJSON.equals(format)) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Unknown format. "+format );
+		}
+	}
+	
+	private ResponseEntity<StreamingResponseBody> export(String name, String format, StreamingResponseBody body) {
+		boolean csv = GradeExportService.CSV.equals(format);
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CONTENT_TYPE, csv ? "text/csv; charset=UTF-8" : "application/x-ndjson")
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + (csv ? ".csv" : ".ndjson") + "\"")
+				.body(body);
+	}
+
+}
@@ -9,9 +9,24 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
 import javax.persistence.OneToMany;
 
+import org.hibernate.annotations.BatchSize;
+
+/*
+ * fetch plans used by AssignmentRepository.
+ *   Assignment.course            - the assignment and its course in one select
+ *   Assignment.courseAndGrades   - also the grade rows of the assignment
+ */
 @Entity
+@NamedEntityGraphs({
+	@NamedEntityGraph(name = "Assignment.course", attributeNodes = @NamedAttributeNode("course")),
+	@NamedEntityGraph(name = "Assignment.courseAndGrades", attributeNodes = {
+			@NamedAttributeNode("course"), @NamedAttributeNode("assignmentGrades") })
+})
 public class Assignment {
 	
 	@Id
@@ -23,6 +38,7 @@ public class Assignment {
 	private Course course;
 	
 	@OneToMany(mappedBy="assignment")
+	@BatchSize(size=100)
 	private List<AssignmentGrade> assignmentGrades;
 	
 	private String name;
@@ -60,6 +76,12 @@ public class Assignment {
 	public void setCourse(Course course) {
 		this.course = course;
 	}
+	public List<AssignmentGrade> getAssignmentGrades() {
+		return assignmentGrades;
+	}
+	public void setAssignmentGrades(List<AssignmentGrade> assignmentGrades) {
+		this.assignmentGrades = assignmentGrades;
+	}
 	@Override
 	public String toString() {
 		return "Assignment [id=" + id + ", course_id=" + course.getCourse_id() + ", name=" + name + ", dueDate=" + dueDate
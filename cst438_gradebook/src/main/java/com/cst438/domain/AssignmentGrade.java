@@ -1,28 +1,42 @@
 package com.cst438.domain;
 
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_assignment_grade_assignment_enrollment", 
+		columnNames = { "assignment_id", "enrollment_id" }))
 public class AssignmentGrade {
 	@Id
 	@GeneratedValue(strategy=GenerationType.IDENTITY)
 	private int id;
 	
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="enrollment_id")
 	private Enrollment studentEnrollment;
 	
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="assignment_id")
 	private Assignment assignment;
 	
 	private String score;
 	
+	private static final BigDecimal MAX_SCORE_VALUE = new BigDecimal(10000);
+	
+	// numeric copy of score used by database aggregates, null if score is blank or not a number
+	@Column(name="score_value", precision=6, scale=2)
+	private BigDecimal scoreValue;
+	
 	public AssignmentGrade() { }
 	
 	public AssignmentGrade(Assignment assignment, Enrollment enrollment) {
@@ -61,6 +75,32 @@ public class AssignmentGrade {
 
 	public void setScore(String score) {
 		this.score = score;
+		this.scoreValue = parseScore(score);
+	}
+
+	public BigDecimal getScoreValue() {
+		return scoreValue;
+	}
+	
+	/*
+	 * numeric value of a score as entered by the instructor.  
+	 * returns null for a blank score, one that is not a number, or one that 
+	 * does not fit score_value decimal(6,2): 10000 or more, or more than 2 decimals.
+	 */
+	public static BigDecimal parseScore(String score) {
+		if (score == null || score.trim().isEmpty()) {
+			return null;
+		}
+		BigDecimal value;
+		try {
+			value = new BigDecimal(score.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		if (value.abs().compareTo(MAX_SCORE_VALUE) >= 0 || value.stripTrailingZeros().scale() > 2) {
+			return null;
+		}
+		return value;
 	}
 
 	@Override
@@ -1,10 +1,13 @@
 package com.cst438.domain;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
-public interface AssignmentGradeRepository extends CrudRepository <AssignmentGrade, Integer> {
+public interface AssignmentGradeRepository extends CrudRepository <AssignmentGrade, Integer>, AssignmentGradeRepositoryCustom {
 	
 	@Query("select a from AssignmentGrade a where a.assignment.id=:assignmentId and a.studentEnrollment.studentEmail=:email")
 	AssignmentGrade findByAssignmentIdAndStudentEmail(
@@ -14,4 +17,10 @@ public interface AssignmentGradeRepository extends CrudRepository <AssignmentGra
 	@Query("select a from AssignmentGrade a where a.assignment.id=:assignmentId")
 	AssignmentGrade findByAssignmentId(
 			@Param("assignmentId") int assignmentId);
+	
+	// grades of the assignment with the given primary keys, fetched in one query
+	@Query("select a from AssignmentGrade a where a.assignment.id=:assignmentId and a.id in :ids")
+	List<AssignmentGrade> findByAssignmentIdAndIdIn(
+			@Param("assignmentId") int assignmentId, 
+			@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,39 @@
+package com.cst438.domain;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * grade writes that are done with plain JDBC instead of through the entity manager, 
+ * and the gradebook page query, which is built from the request
+ */
+public interface AssignmentGradeRepositoryCustom {
+	
+	/*
+	 * insert or replace the score of each enrollment for an assignment.  
+	 * the unique key on (assignment_id, enrollment_id) makes this safe to 
+	 * repeat and safe against concurrent writers.
+	 */
+	void upsertScores(int assignmentId, Map<Integer, String> scoresByEnrollmentId);
+	
+	/*
+	 * blank the score of the enrollments that have a grade row for the assignment.  
+	 * no row is added for the others.
+	 */
+	void clearScores(int assignmentId, Collection<Integer> enrollmentIds);
+	
+	/*
+	 * a page of the enrollments of the course, each with its grade for the assignment, 
+	 * ordered by student name and enrollment id.  the page starts after the enrollment 
+	 * (afterName, afterId); afterId 0 is the first page.  students without a name sort 
+	 * first, as they do in MySQL.  at most maxRows rows are read, all when it is null.  
+	 * only the columns of fields (name, email, grade) are read, the others are null in 
+	 * the rows; the ids are always read, and the name is when maxRows is given because 
+	 * the next page starts after it.
+	 */
+	List<GradebookRow> findGradebookPage(int assignmentId, int courseId, String afterName, int afterId, 
+			Integer maxRows, Set<String> fields);
+
+}
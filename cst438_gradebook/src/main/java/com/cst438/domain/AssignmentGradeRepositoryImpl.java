@@ -0,0 +1,116 @@
+package com.cst438.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class AssignmentGradeRepositoryImpl implements AssignmentGradeRepositoryCustom {
+	
+	private static final String UPSERT_SCORE = 
+			"insert into assignment_grade (assignment_id, enrollment_id, score, score_value) values (?, ?, ?, ?) "
+			+ "on duplicate key update score = values(score), score_value = values(score_value)";
+	
+	private static final String CLEAR_SCORE = 
+			"update assignment_grade set score = '', score_value = null where assignment_id = ? and enrollment_id = ?";
+	
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	
+	@PersistenceContext
+	EntityManager entityManager;
+
+	@Override
+	public void upsertScores(int assignmentId, Map<Integer, String> scoresByEnrollmentId) {
+		if (scoresByEnrollmentId.isEmpty()) {
+			return;
+		}
+		// one JDBC batch for all rows.  with rewriteBatchedStatements=true on the
+		//  connection url the driver sends this as a multi row insert.
+		List<Object[]> rows = new ArrayList<>(scoresByEnrollmentId.size());
+		for (Map.Entry<Integer, String> entry : scoresByEnrollmentId.entrySet()) {
+			rows.add(new Object[] { assignmentId, entry.getKey(), entry.getValue(), AssignmentGrade.parseScore(entry.getValue()) });
+		}
+		jdbcTemplate.batchUpdate(UPSERT_SCORE, rows);
+	}
+	
+	@Override
+	public void clearScores(int assignmentId, Collection<Integer> enrollmentIds) {
+		if (enrollmentIds.isEmpty()) {
+			return;
+		}
+		List<Object[]> rows = new ArrayList<>(enrollmentIds.size());
+		for (Integer enrollmentId : enrollmentIds) {
+			rows.add(new Object[] { assignmentId, enrollmentId });
+		}
+		jdbcTemplate.batchUpdate(CLEAR_SCORE, rows);
+	}
+	
+	/*
+	 * the first page is read from the start of the (course_id, student_name) index.  
+	 * a later page seeks to the row after (afterName, afterId) with a row comparison, 
+	 * so the index is read from there and not from the start.  a null afterName 
+	 * (students without a name come first) can not be compared, it has its own condition.
+	 */
+	@Override
+	public List<GradebookRow> findGradebookPage(int assignmentId, int courseId, String afterName, int afterId,
+			Integer maxRows, Set<String> fields) {
+		boolean name = fields.contains("name") || maxRows != null;
+		boolean email = fields.contains("email");
+		boolean grade = fields.contains("grade");
+		
+		StringBuilder jpql = new StringBuilder("select e.id, g.id");
+		if (name) {
+			jpql.append(", e.studentName");
+		}
+		if (email) {
+			jpql.append(", e.studentEmail");
+		}
+		if (grade) {
+			jpql.append(", g.score");
+		}
+		jpql.append(" from Enrollment e left join AssignmentGrade g on g.studentEnrollment=e and g.assignment.id=:assignmentId "
+				+ "where e.course.course_id=:courseId");
+		if (afterId != 0) {
+			if (afterName != null) {
+				jpql.append(" and (e.studentName, e.id) > (:afterName, :afterId)");
+			} else {
+				jpql.append(" and (e.studentName is not null or e.id > :afterId)");
+			}
+		}
+		jpql.append(" order by e.studentName, e.id");
+		
+		TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class)
+				.setParameter("assignmentId", assignmentId)
+				.setParameter("courseId", courseId);
+		if (afterId != 0) {
+			query.setParameter("afterId", afterId);
+			if (afterName != null) {
+				query.setParameter("afterName", afterName);
+			}
+		}
+		if (maxRows != null) {
+			query.setMaxResults(maxRows);
+		}
+		
+		List<Object[]> result = query.getResultList();
+		List<GradebookRow> rows = new ArrayList<>(result.size());
+		for (Object[] r : result) {
+			int column = 2;
+			String studentName = name ? (String) r[column++] : null;
+			String studentEmail = email ? (String) r[column++] : null;
+			String score = grade ? (String) r[column++] : null;
+			rows.add(new GradebookRow((Integer) r[0], studentName, studentEmail, (Integer) r[1], score));
+		}
+		return rows;
+	}
+
+}
@@ -1,13 +1,56 @@
 package com.cst438.domain;
 
+import java.sql.Date;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
 public interface AssignmentRepository extends CrudRepository <Assignment, Integer> {
 
-	@Query("select a from Assignment a where a.needsGrading=1 and a.dueDate < current_date and a.course.instructor= :email order by a.id")
+	// needsGrading already includes the due date, see refreshGradingStatus
+	@EntityGraph("Assignment.course")
+	@Query("select a from Assignment a where a.needsGrading=1 and a.course.instructor= :email order by a.id")
 	List<Assignment> findNeedGradingByEmail(@Param("email") String email);
+	
+	@Query("select a.id from Assignment a where a.course.course_id=:courseId")
+	List<Integer> findIdsByCourse(@Param("courseId") int courseId);
+	
+	// the assignment with its course and grade rows in one select
+	@EntityGraph("Assignment.courseAndGrades")
+	Optional<Assignment> findWithGradesById(int id);
+	
+	/*
+	 * recount the graded students of the assignments and set needs_grading: 1 when the 
+	 * assignment is past due and not every student in the course has a score.  called 
+	 * after scores are written, so it reads the index of assignment_grade and enrollment 
+	 * for these assignments only.
+	 */
+	@Modifying(flushAutomatically = true)
+	@Query(value = "update assignment a set "
+			+ "a.graded_count = (select count(*) from assignment_grade g where g.assignment_id = a.id and trim(g.score) <> ''), "
+			+ "a.needs_grading = case when a.due_date < current_date "
+			+ "and a.graded_count < (select count(*) from enrollment e where e.course_id = a.course_id) then 1 else 0 end "
+			+ "where a.id in :ids", nativeQuery = true)
+	int refreshGradingStatus(@Param("ids") Collection<Integer> assignmentIds);
+	
+	// the same for every assignment of the courses, after students were enrolled
+	@Modifying(flushAutomatically = true)
+	@Query(value = "update assignment a set "
+			+ "a.needs_grading = case when a.due_date < current_date "
+			+ "and a.graded_count < (select count(*) from enrollment e where e.course_id = a.course_id) then 1 else 0 end "
+			+ "where a.course_id in :courseIds", nativeQuery = true)
+	int refreshGradingStatusOfCourses(@Param("courseIds") Collection<Integer> courseIds);
+	
+	// assignments that became past due since the given date and are not fully graded
+	@Modifying
+	@Query(value = "update assignment a set a.needs_grading = 1 "
+			+ "where a.needs_grading = 0 and a.due_date >= :since and a.due_date < current_date "
+			+ "and a.graded_count < (select count(*) from enrollment e where e.course_id = a.course_id)", nativeQuery = true)
+	int markPastDue(@Param("since") Date since);
 }
@@ -2,12 +2,30 @@ package com.cst438.domain;
 
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
 import javax.persistence.OrderBy;
+import javax.persistence.Table;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+/*
+ * when several courses are traversed, their enrollments and assignments 
+ * are loaded in batches instead of one select per course.
+ * 
+ * courses and their rosters change rarely, so they are kept in the second 
+ * level cache.  inserting an enrollment evicts the roster of its course 
+ * (hibernate.cache.auto_evict_collection_cache).
+ */
 @Entity
+@Table(indexes = @Index(name = "idx_course_instructor", columnList = "instructor"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "course")
 public class Course {
 	
 	@Id
@@ -19,9 +37,12 @@ public class Course {
 	
 	@OneToMany(mappedBy="course")
 	@OrderBy("studentName ASC")
+	@BatchSize(size=100)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "course-enrollments")
 	List<Enrollment> enrollments;
 	
 	@OneToMany(mappedBy="course")
+	@BatchSize(size=100)
 	List<Assignment> assignments;
 	
 	public int getCourse_id() {
@@ -1,7 +1,18 @@
 package com.cst438.domain;
 
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 public interface CourseRepository extends CrudRepository <Course, Integer> {
+	
+	// title and id of the courses taught by an instructor, uses the index on course.instructor
+	@Query("select c.title as title, c.course_id as courseId from Course c where c.instructor=:email")
+	List<CourseSummary> findSummariesByInstructor(@Param("email") String email);
+	
+	@Query("select c.course_id from Course c where c.year=:year and c.semester=:semester order by c.course_id")
+	List<Integer> findIdsByTerm(@Param("year") int year, @Param("semester") String semester);
 
 }
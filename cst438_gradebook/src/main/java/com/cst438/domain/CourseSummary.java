@@ -0,0 +1,11 @@
+package com.cst438.domain;
+
+/*
+ * the columns of a course needed to list an instructor's courses
+ */
+public interface CourseSummary {
+	
+	String getTitle();
+	int getCourseId();
+
+}
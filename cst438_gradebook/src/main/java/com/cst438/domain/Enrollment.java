@@ -2,23 +2,45 @@ package com.cst438.domain;
 
 import java.util.List;
 
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
-
-
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+
+/*
+ * when the grades of a roster are traversed, the grades of every enrollment 
+ * loaded by the same query are fetched together by one subselect.
+ * 
+ * a student is enrolled in a course at most once.
+ */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_enrollment_course_student",
+		columnNames = { "course_id", "student_email" }),
+		indexes = @Index(name = "idx_enrollment_course_name", columnList = "course_id, student_name"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "enrollment")
 public class Enrollment {
 	
 	@Id
 	@GeneratedValue(strategy=GenerationType.IDENTITY)
 	private int id;
 	
+	@Column(name="student_name")
 	private String studentName;
+	@Column(name="student_email")
 	private String studentEmail;
 	
 	@ManyToOne
@@ -26,6 +48,7 @@ public class Enrollment {
 	private Course course;
 	
 	@OneToMany(mappedBy="studentEnrollment")
+	@Fetch(FetchMode.SUBSELECT)
 	List<AssignmentGrade> assignmentGrades;
 
 	public int getId() {
@@ -0,0 +1,75 @@
+package com.cst438.domain;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/*
+ * running score total, count and letter grade of one student enrollment.  
+ * kept up to date by GradeWriteService whenever scores are written, and 
+ * checked against the scores by GradeSummaryChecker.
+ */
+@Entity
+@Table(name="enrollment_grade_summary")
+public class EnrollmentGradeSummary {
+	
+	@Id
+	@Column(name="enrollment_id")
+	private int enrollmentId;
+	
+	@Column(name="score_total", precision=10, scale=2)
+	private BigDecimal scoreTotal;
+	
+	@Column(name="score_count")
+	private int scoreCount;
+	
+	@Column(name="letter_grade", length=2)
+	private String letterGrade;
+	
+	public EnrollmentGradeSummary() { }
+	
+	public EnrollmentGradeSummary(int enrollmentId, BigDecimal scoreTotal, int scoreCount) {
+		this.enrollmentId = enrollmentId;
+		this.scoreTotal = (scoreTotal == null) ? BigDecimal.ZERO : scoreTotal;
+		this.scoreCount = scoreCount;
+		this.letterGrade = letterGrade(average(this.scoreTotal, scoreCount));
+	}
+	
+	public static double average(BigDecimal scoreTotal, long scoreCount) {
+		return (scoreCount == 0 || scoreTotal == null) ? 0.0 : scoreTotal.doubleValue() / scoreCount;
+	}
+	
+	public static String letterGrade(double grade) {
+		if (grade >= 90) return "A";
+		if (grade >= 80) return "B";
+		if (grade >= 70) return "C";
+		if (grade >= 60) return "D";
+		return "F";
+	}
+
+	public int getEnrollmentId() {
+		return enrollmentId;
+	}
+
+	public BigDecimal getScoreTotal() {
+		return scoreTotal;
+	}
+
+	public int getScoreCount() {
+		return scoreCount;
+	}
+
+	public String getLetterGrade() {
+		return letterGrade;
+	}
+
+	@Override
+	public String toString() {
+		return "EnrollmentGradeSummary [enrollmentId=" + enrollmentId + ", scoreTotal=" + scoreTotal 
+				+ ", scoreCount=" + scoreCount + ", letterGrade=" + letterGrade + "]";
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.cst438.domain;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+public interface EnrollmentGradeSummaryRepository 
+		extends CrudRepository <EnrollmentGradeSummary, Integer>, EnrollmentGradeSummaryRepositoryCustom {
+	
+	/*
+	 * enrollments between fromId and toId whose summary does not match the scores, 
+	 * or that have scores and no summary.
+	 */
+	@Query(value = "select e.id from enrollment e "
+			+ "left join enrollment_grade_summary s on s.enrollment_id = e.id "
+			+ "left join (select enrollment_id, sum(score_value) as score_total, count(score_value) as score_count "
+			+ "   from assignment_grade where enrollment_id between :fromId and :toId group by enrollment_id) g "
+			+ " on g.enrollment_id = e.id "
+			+ "where e.id between :fromId and :toId "
+			+ "and ((s.enrollment_id is null and g.enrollment_id is not null) "
+			+ "  or s.score_count <> coalesce(g.score_count, 0) or s.score_total <> coalesce(g.score_total, 0))", 
+			nativeQuery = true)
+	List<Integer> findDriftedEnrollmentIds(@Param("fromId") int fromId, @Param("toId") int toId);
+
+}
@@ -0,0 +1,21 @@
+package com.cst438.domain;
+
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * grade summary writes that are done with plain JDBC instead of through the entity manager
+ */
+public interface EnrollmentGradeSummaryRepositoryCustom {
+	
+	// insert or replace the summaries in one JDBC batch
+	void upsertSummaries(List<EnrollmentGradeSummary> summaries);
+	
+	/*
+	 * lock the summaries of the enrollments until the transaction ends, in enrollment 
+	 * id order so two transactions can not wait on each other.  a missing summary is 
+	 * inserted (no scores, F) so there is a row to lock.
+	 */
+	void lockSummaries(Collection<Integer> enrollmentIds);
+
+}
@@ -0,0 +1,51 @@
+package com.cst438.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class EnrollmentGradeSummaryRepositoryImpl implements EnrollmentGradeSummaryRepositoryCustom {
+	
+	private static final String UPSERT_SUMMARY = 
+			"insert into enrollment_grade_summary (enrollment_id, score_total, score_count, letter_grade) values (?, ?, ?, ?) "
+			+ "on duplicate key update score_total = values(score_total), score_count = values(score_count), "
+			+ "letter_grade = values(letter_grade)";
+	
+	// the update of an existing row is a no-op, but it still takes the row lock
+	private static final String LOCK_SUMMARY = 
+			"insert into enrollment_grade_summary (enrollment_id, score_total, score_count, letter_grade) values (?, 0, 0, 'F') "
+			+ "on duplicate key update enrollment_id = enrollment_id";
+	
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Override
+	public void upsertSummaries(List<EnrollmentGradeSummary> summaries) {
+		if (summaries.isEmpty()) {
+			return;
+		}
+		List<Object[]> rows = new ArrayList<>(summaries.size());
+		for (EnrollmentGradeSummary s : summaries) {
+			rows.add(new Object[] { s.getEnrollmentId(), s.getScoreTotal(), s.getScoreCount(), s.getLetterGrade() });
+		}
+		jdbcTemplate.batchUpdate(UPSERT_SUMMARY, rows);
+	}
+	
+	@Override
+	public void lockSummaries(Collection<Integer> enrollmentIds) {
+		if (enrollmentIds.isEmpty()) {
+			return;
+		}
+		// the rows of the batch are sent, and locked, in this order
+		List<Object[]> rows = new ArrayList<>(enrollmentIds.size());
+		for (Integer enrollmentId : new TreeSet<>(enrollmentIds)) {
+			rows.add(new Object[] { enrollmentId });
+		}
+		jdbcTemplate.batchUpdate(LOCK_SUMMARY, rows);
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.cst438.domain;
+
+/*
+ * sum and count of the scores of one student enrollment and the 
+ * letter grade, read from the enrollment's grade summary.
+ */
+public interface EnrollmentGradeTotal {
+	
+	String getStudentEmail();
+	String getStudentName();
+	Double getScoreTotal();		// null if the student has no scores
+	long getScoreCount();
+	String getLetterGrade();	// null if the student has no scores
+
+}
@@ -1,7 +1,100 @@
 package com.cst438.domain;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
-public interface EnrollmentRepository extends CrudRepository <Enrollment, Integer> {
+public interface EnrollmentRepository extends CrudRepository <Enrollment, Integer>, EnrollmentRepositoryCustom {
+	
+	// Integer.MIN_VALUE makes the MySQL driver stream the rows of the query one at a time
+	String EXPORT_FETCH_SIZE = "-2147483648";
+	
+	// the subset of the given enrollment ids that belong to the course
+	@Query("select e.id from Enrollment e where e.course.course_id=:courseId and e.id in :ids")
+	List<Integer> findIdsInCourse(
+			@Param("courseId") int courseId, 
+			@Param("ids") Collection<Integer> ids);
+	
+	@Query("select count(e) from Enrollment e where e.course.course_id=:courseId")
+	long countByCourseId(@Param("courseId") int courseId);
+	
+	// enrollment id and student email of every student in the course
+	@Query("select e.id, e.studentEmail from Enrollment e where e.course.course_id=:courseId")
+	List<Object[]> findIdsAndEmailsByCourse(@Param("courseId") int courseId);
+	
+	// per student score totals and letter grade for a course, read from the grade summaries
+	@Query("select e.studentEmail as studentEmail, e.studentName as studentName, "
+			+ "s.scoreTotal as scoreTotal, coalesce(s.scoreCount, 0) as scoreCount, s.letterGrade as letterGrade "
+			+ "from Enrollment e left join EnrollmentGradeSummary s on s.enrollmentId = e.id "
+			+ "where e.course.course_id=:courseId order by e.studentName")
+	List<EnrollmentGradeTotal> findGradeTotalsByCourse(@Param("courseId") int courseId);
+	
+	// the same for the students of the course with enrollment id in [fromId, toId]
+	@Query("select e.studentEmail as studentEmail, e.studentName as studentName, "
+			+ "s.scoreTotal as scoreTotal, coalesce(s.scoreCount, 0) as scoreCount, s.letterGrade as letterGrade "
+			+ "from Enrollment e left join EnrollmentGradeSummary s on s.enrollmentId = e.id "
+			+ "where e.course.course_id=:courseId and e.id between :fromId and :toId order by e.studentName")
+	List<EnrollmentGradeTotal> findGradeTotalsByCourseAndIdRange(@Param("courseId") int courseId, 
+			@Param("fromId") int fromId, @Param("toId") int toId);
+	
+	// course id and student email of the enrollments that exist; emails compare case insensitive
+	@Query("select e.course.course_id, e.studentEmail from Enrollment e "
+			+ "where e.course.course_id in :courseIds and e.studentEmail in :emails")
+	List<Object[]> findExistingEnrollments(
+			@Param("courseIds") Collection<Integer> courseIds, 
+			@Param("emails") Collection<String> emails);
+	
+	@Query("select e.id from Enrollment e where e.course.course_id=:courseId order by e.id")
+	List<Integer> findIdsByCourse(@Param("courseId") int courseId);
+	
+	/*
+	 * enrollment id, score total and score count of the enrollments, aggregated from the scores.  
+	 * a locking read, so the sums include scores committed after this transaction started.
+	 */
+	@Query(value = "select e.id, sum(g.score_value), count(g.score_value) "
+			+ "from enrollment e left join assignment_grade g on g.enrollment_id = e.id "
+			+ "where e.id in :ids group by e.id lock in share mode", nativeQuery = true)
+	List<Object[]> sumScoresByIds(@Param("ids") Collection<Integer> enrollmentIds);
+	
+	/*
+	 * every student and assignment of a course, with the score if there is one, for export.  
+	 * rows are streamed from the server as they are read (see EXPORT_FETCH_SIZE), only for 
+	 * this query; other queries still read their whole result at once.  the stream must be 
+	 * consumed and closed inside a transaction, and no other statement can run on the 
+	 * connection until it is.
+	 */
+	@QueryHints({ 
+		@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+		@QueryHint(name = HINT_READONLY, value = "true"),
+		@QueryHint(name = HINT_CACHEABLE, value = "false") })
+	@Query("select new com.cst438.domain.GradeExportRow(e.id, e.studentEmail, e.studentName, a.id, a.name, g.score) "
+			+ "from Enrollment e join Assignment a on a.course = e.course "
+			+ "left join AssignmentGrade g on g.studentEnrollment = e and g.assignment = a "
+			+ "where e.course.course_id=:courseId "
+			+ "order by e.studentName, e.id, a.dueDate, a.id")
+	Stream<GradeExportRow> streamCourseGrades(@Param("courseId") int courseId);
+	
+	// every student of the course of an assignment, with the score if there is one, for export
+	@QueryHints({ 
+		@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+		@QueryHint(name = HINT_READONLY, value = "true"),
+		@QueryHint(name = HINT_CACHEABLE, value = "false") })
+	@Query("select new com.cst438.domain.GradeExportRow(e.id, e.studentEmail, e.studentName, a.id, a.name, g.score) "
+			+ "from Enrollment e join Assignment a on a.course = e.course "
+			+ "left join AssignmentGrade g on g.studentEnrollment = e and g.assignment = a "
+			+ "where a.id=:assignmentId "
+			+ "order by e.studentName, e.id")
+	Stream<GradeExportRow> streamAssignmentGrades(@Param("assignmentId") int assignmentId);
 
 }
@@ -0,0 +1,24 @@
+package com.cst438.domain;
+
+import java.util.List;
+
+/*
+ * enrollment writes that are done with plain JDBC instead of through the entity manager
+ */
+public interface EnrollmentRepositoryCustom {
+	
+	/*
+	 * insert the enrollments in one JDBC batch.  an enrollment of a student already 
+	 * in the course is skipped by the unique key on (course_id, student_email), so 
+	 * this is safe to repeat.  the course of every enrollment must exist.  the cached 
+	 * rosters of the courses are evicted when the transaction commits.
+	 */
+	void upsertEnrollments(List<EnrollmentDTO> enrollments);
+	
+	/*
+	 * insert one enrollment, or find the existing enrollment of the student in the 
+	 * course, and return its id.
+	 */
+	int upsertEnrollment(EnrollmentDTO enrollment);
+
+}
@@ -0,0 +1,100 @@
+package com.cst438.domain;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class EnrollmentRepositoryImpl implements EnrollmentRepositoryCustom {
+	
+	private static final String UPSERT_ENROLLMENT = 
+			"insert into enrollment (student_email, student_name, course_id) values (?, ?, ?) "
+			+ "on duplicate key update id = id";
+	
+	// last_insert_id(id) makes the driver return the id of the existing row as the generated key
+	private static final String UPSERT_ENROLLMENT_RETURNING_ID = 
+			"insert into enrollment (student_email, student_name, course_id) values (?, ?, ?) "
+			+ "on duplicate key update id = last_insert_id(id)";
+	
+	private static final String FIND_ENROLLMENT_ID = 
+			"select id from enrollment where course_id = ? and student_email = ?";
+	
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Override
+	public void upsertEnrollments(List<EnrollmentDTO> enrollments) {
+		if (enrollments.isEmpty()) {
+			return;
+		}
+		// one JDBC batch, sent as a multi row insert because of rewriteBatchedStatements=true
+		List<Object[]> rows = new ArrayList<>(enrollments.size());
+		Set<Integer> courseIds = new TreeSet<>();
+		for (EnrollmentDTO e : enrollments) {
+			rows.add(new Object[] { e.studentEmail, e.studentName, e.course_id });
+			courseIds.add(e.course_id);
+		}
+		jdbcTemplate.batchUpdate(UPSERT_ENROLLMENT, rows);
+		evictRostersAfterCommit(courseIds);
+	}
+	
+	@Override
+	public int upsertEnrollment(EnrollmentDTO enrollment) {
+		KeyHolder keyHolder = new GeneratedKeyHolder();
+		jdbcTemplate.update(connection -> {
+			PreparedStatement ps = connection.prepareStatement(UPSERT_ENROLLMENT_RETURNING_ID, Statement.RETURN_GENERATED_KEYS);
+			ps.setString(1, enrollment.studentEmail);
+			ps.setString(2, enrollment.studentName);
+			ps.setInt(3, enrollment.course_id);
+			return ps;
+		}, keyHolder);
+		evictRostersAfterCommit(Collections.singleton(enrollment.course_id));
+		if (keyHolder.getKey() != null) {
+			return keyHolder.getKey().intValue();
+		}
+		// a driver that does not report the key of an updated row
+		return jdbcTemplate.queryForObject(FIND_ENROLLMENT_ID, Integer.class, enrollment.course_id, enrollment.studentEmail);
+	}
+	
+	/*
+	 * these inserts bypass hibernate, so the course-enrollments cache does not know 
+	 * about them.  evicting after commit, not now, keeps another request from 
+	 * caching the old roster again before the new rows are visible.
+	 */
+	private void evictRostersAfterCommit(Set<Integer> courseIds) {
+		Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+		Runnable evict = () -> {
+			for (Integer courseId : courseIds) {
+				cache.evictCollectionData(Course.class.getName() + ".enrollments", courseId);
+			}
+		};
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					evict.run();
+				}
+			});
+		} else {
+			evict.run();
+		}
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.cst438.domain;
+
+// outcome of one row of a bulk enrollment request
+public class EnrollmentResultDTO {
+	public int row;
+	public String studentEmail;
+	public int course_id;
+	public String status;
+	
+	public EnrollmentResultDTO() { }
+	
+	public EnrollmentResultDTO(int row, String studentEmail, int course_id, String status) {
+		this.row = row;
+		this.studentEmail = studentEmail;
+		this.course_id = course_id;
+		this.status = status;
+	}
+
+	@Override
+	public String toString() {
+		return "EnrollmentResultDTO [row=" + row + ", studentEmail=" + studentEmail + ", course_id=" + course_id
+				+ ", status=" + status + "]";
+	}
+	
+}
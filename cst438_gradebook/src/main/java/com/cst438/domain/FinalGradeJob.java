@@ -0,0 +1,69 @@
+package com.cst438.domain;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/*
+ * progress of a final grade job, returned by the job status endpoint.  
+ * counters are updated by the worker threads while the job runs.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FinalGradeJob {
+	
+	public static final String RUNNING = "RUNNING";
+	public static final String COMPLETED = "COMPLETED";
+	public static final String FAILED = "FAILED";	// finished, but some courses could not be finalized
+	
+	public final String id;
+	public final Integer courseId;	// a job for one course, or
+	public final Integer year;		//  for every course of a term
+	public final String semester;
+	public volatile String status = RUNNING;
+	public final AtomicInteger coursesTotal = new AtomicInteger();
+	public final AtomicInteger coursesDone = new AtomicInteger();
+	public final AtomicInteger coursesFailed = new AtomicInteger();
+	public final AtomicInteger partsTotal = new AtomicInteger();	// a large course is finalized in several parts
+	public final AtomicInteger partsDone = new AtomicInteger();
+	// read by the status endpoint while workers add to it, iterating a copy-on-write list needs no lock
+	public final List<String> errors = new CopyOnWriteArrayList<>();
+	public final Timestamp startedAt = new Timestamp(System.currentTimeMillis());
+	public volatile Timestamp finishedAt;
+	
+	public FinalGradeJob(String id, Integer year, String semester) {
+		this(id, null, year, semester);
+	}
+	
+	public FinalGradeJob(String id, int courseId) {
+		this(id, courseId, null, null);
+	}
+	
+	private FinalGradeJob(String id, Integer courseId, Integer year, String semester) {
+		this.id = id;
+		this.courseId = courseId;
+		this.year = year;
+		this.semester = semester;
+	}
+	
+	// the first errors are kept, enough to see what went wrong
+	public synchronized void fail(int courseId, Exception e) {
+		if (errors.size() < 100) {
+			errors.add("course " + courseId + ": " + e.getMessage());
+		}
+	}
+	
+	public void finish() {
+		finishedAt = new Timestamp(System.currentTimeMillis());
+		status = (coursesFailed.get() == 0) ? COMPLETED : FAILED;
+	}
+
+	@Override
+	public String toString() {
+		return "FinalGradeJob [id=" + id + ", courseId=" + courseId + ", year=" + year + ", semester=" + semester + ", status=" + status
+				+ ", coursesDone=" + coursesDone + "/" + coursesTotal + ", coursesFailed=" + coursesFailed + "]";
+	}
+
+}
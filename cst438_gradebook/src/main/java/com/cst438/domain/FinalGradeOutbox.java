@@ -0,0 +1,130 @@
+package com.cst438.domain;
+
+import java.sql.Timestamp;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+
+/*
+ * final grades of a course waiting to be sent to the registration service.
+ * payload is the CourseDTOG as JSON.
+ */
+@Entity
+public class FinalGradeOutbox {
+	
+	public static final String PENDING = "PENDING";	// waiting to be sent, or retry after a failure
+	public static final String SENDING = "SENDING";	// claimed by the dispatcher until nextAttemptAt
+	public static final String SENT = "SENT";
+	public static final String FAILED = "FAILED";	// gave up after the maximum number of attempts
+	public static final String SUPERSEDED = "SUPERSEDED";	// not sent, a newer row for the course replaces it
+	
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	private long id;
+	
+	private int courseId;
+	
+	@Column(columnDefinition="mediumtext")
+	private String payload;
+	
+	private String status;
+	private int attempts;
+	private Timestamp nextAttemptAt;
+	private Timestamp createdAt;
+	private Timestamp sentAt;
+	private String lastError;
+	
+	public FinalGradeOutbox() { }
+	
+	public FinalGradeOutbox(int courseId, String payload) {
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		this.courseId = courseId;
+		this.payload = payload;
+		this.status = PENDING;
+		this.attempts = 0;
+		this.nextAttemptAt = now;
+		this.createdAt = now;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	public int getCourseId() {
+		return courseId;
+	}
+
+	public void setCourseId(int courseId) {
+		this.courseId = courseId;
+	}
+
+	public String getPayload() {
+		return payload;
+	}
+
+	public void setPayload(String payload) {
+		this.payload = payload;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+
+	public Timestamp getNextAttemptAt() {
+		return nextAttemptAt;
+	}
+
+	public void setNextAttemptAt(Timestamp nextAttemptAt) {
+		this.nextAttemptAt = nextAttemptAt;
+	}
+
+	public Timestamp getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Timestamp createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public Timestamp getSentAt() {
+		return sentAt;
+	}
+
+	public void setSentAt(Timestamp sentAt) {
+		this.sentAt = sentAt;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	public void setLastError(String lastError) {
+		this.lastError = lastError;
+	}
+
+	@Override
+	public String toString() {
+		return "FinalGradeOutbox [id=" + id + ", courseId=" + courseId + ", status=" + status + ", attempts=" + attempts
+				+ ", nextAttemptAt=" + nextAttemptAt + "]";
+	}
+
+}
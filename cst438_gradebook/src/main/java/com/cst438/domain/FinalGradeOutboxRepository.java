@@ -0,0 +1,38 @@
+package com.cst438.domain;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+public interface FinalGradeOutboxRepository extends CrudRepository <FinalGradeOutbox, Long> {
+	
+	/*
+	 * lock the oldest rows that are due to be sent.  a SENDING row is due again when 
+	 * its claim expired (the dispatcher stopped before finishing it).  rows locked by 
+	 * another dispatcher are skipped, so several instances can share the outbox.
+	 */
+	@Query(value="select * from final_grade_outbox where status in ('PENDING', 'SENDING') and next_attempt_at <= :now "
+			+ "order by id limit :limit for update skip locked", nativeQuery=true)
+	List<FinalGradeOutbox> lockDue(@Param("now") Timestamp now, @Param("limit") int limit);
+
+	
+	// rows of the course not sent yet, replaced by a newer row
+	@Modifying
+	@Query("update FinalGradeOutbox o set o.status='SUPERSEDED' where o.courseId=:courseId and o.status='PENDING'")
+	int supersedePending(@Param("courseId") int courseId);
+	
+	// course id and id of the newest row of each course
+	@Query("select o.courseId, max(o.id) from FinalGradeOutbox o where o.courseId in :courseIds group by o.courseId")
+	List<Object[]> findNewestIds(@Param("courseIds") Collection<Integer> courseIds);
+	
+	// course ids with a row being sent by a dispatcher right now (claimed, and the claim has not expired)
+	@Query("select distinct o.courseId from FinalGradeOutbox o where o.courseId in :courseIds "
+			+ "and o.status='SENDING' and o.nextAttemptAt > :now")
+	List<Integer> findCoursesBeingSent(@Param("courseIds") Collection<Integer> courseIds, @Param("now") Timestamp now);
+
+}
@@ -0,0 +1,32 @@
+package com.cst438.domain;
+
+/*
+ * one student and assignment of a gradebook export.  built by the export 
+ * queries with a constructor expression, so no entities are loaded and 
+ * nothing is kept in the persistence context while rows are streamed.
+ */
+public class GradeExportRow {
+	public final int enrollmentId;
+	public final String studentEmail;
+	public final String studentName;
+	public final int assignmentId;
+	public final String assignmentName;
+	public final String score;
+	
+	public GradeExportRow(int enrollmentId, String studentEmail, String studentName, int assignmentId,
+			String assignmentName, String score) {
+		this.enrollmentId = enrollmentId;
+		this.studentEmail = studentEmail;
+		this.studentName = studentName;
+		this.assignmentId = assignmentId;
+		this.assignmentName = assignmentName;
+		this.score = score;
+	}
+
+	@Override
+	public String toString() {
+		return "GradeExportRow [enrollmentId=" + enrollmentId + ", studentEmail=" + studentEmail + ", studentName="
+				+ studentName + ", assignmentId=" + assignmentId + ", assignmentName=" + assignmentName + ", score="
+				+ score + "]";
+	}
+}
@@ -0,0 +1,38 @@
+package com.cst438.domain;
+
+/*
+ * one line of the response to a grade import.  a line is written for every 
+ * row that was not imported, with its error, and a last line with the totals 
+ * (row 0, error null).
+ */
+public class GradeImportResultDTO {
+	public int row;
+	public String studentEmail;
+	public String error;
+	public int rows;
+	public int imported;
+	
+	public GradeImportResultDTO() { }
+	
+	public static GradeImportResultDTO error(int row, String studentEmail, String error) {
+		GradeImportResultDTO r = new GradeImportResultDTO();
+		r.row = row;
+		r.studentEmail = studentEmail;
+		r.error = error;
+		return r;
+	}
+	
+	public static GradeImportResultDTO totals(int rows, int imported) {
+		GradeImportResultDTO r = new GradeImportResultDTO();
+		r.rows = rows;
+		r.imported = imported;
+		return r;
+	}
+
+	@Override
+	public String toString() {
+		return "GradeImportResultDTO [row=" + row + ", studentEmail=" + studentEmail + ", error=" + error + ", rows="
+				+ rows + ", imported=" + imported + "]";
+	}
+	
+}
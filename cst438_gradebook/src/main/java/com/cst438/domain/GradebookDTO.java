@@ -3,18 +3,23 @@ package com.cst438.domain;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class GradebookDTO {
 	
+	// name, email and grade are left out of the JSON when they were not requested (fields parameter)
+	@JsonInclude(JsonInclude.Include.NON_NULL)
 	public static class Grade{
-		public int assignmentGradeId; 	//  primary key
+		public int assignmentGradeId; 	//  primary key, 0 if the student has no grade yet
+		public int enrollmentId;		//  student enrollment in the course
 		public String name; 			// student name
 		public String email; 			// student email
 		public String  grade;  			// assignment score
 		
 		@Override
 		public String toString() {
-			return "Grade [assignmentGradeId=" + assignmentGradeId + ", name=" + name + ", email=" + email + ", grade="
-					+ grade + "]";
+			return "Grade [assignmentGradeId=" + assignmentGradeId + ", enrollmentId=" + enrollmentId + ", name=" + name 
+					+ ", email=" + email + ", grade=" + grade + "]";
 		}
 
 		@Override
@@ -28,6 +33,8 @@ public class GradebookDTO {
 			Grade other = (Grade) obj;
 			if (assignmentGradeId != other.assignmentGradeId)
 				return false;
+			if (enrollmentId != other.enrollmentId)
+				return false;
 			if (email == null) {
 				if (other.email != null)
 					return false;
@@ -53,10 +60,14 @@ public class GradebookDTO {
 	public int assignmentId;
 	public List<Grade> grades = new ArrayList<>();
 	
+	// pass as "after" to get the next page, null on the last page
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public String nextCursor;
+	
 	@Override
 	public String toString() {
 		return "GradebookDTO [assignmentName=" + assignmentName + ", assignmentId=" + assignmentId + ", grades="
-				+ grades + "]";
+				+ grades + ", nextCursor=" + nextCursor + "]";
 	}
 
 	@Override
@@ -80,6 +91,11 @@ public class GradebookDTO {
 				return false;
 		} else if (!grades.equals(other.grades))
 			return false;
+		if (nextCursor == null) {
+			if (other.nextCursor != null)
+				return false;
+		} else if (!nextCursor.equals(other.nextCursor))
+			return false;
 		return true;
 	}
 	
@@ -0,0 +1,27 @@
+package com.cst438.domain;
+
+/*
+ * one student of a gradebook page with the grade for the assignment.  
+ * assignmentGradeId and score are null when the student has no grade yet.
+ */
+public class GradebookRow {
+	public final int enrollmentId;
+	public final String studentName;
+	public final String studentEmail;
+	public final Integer assignmentGradeId;
+	public final String score;
+	
+	public GradebookRow(int enrollmentId, String studentName, String studentEmail, Integer assignmentGradeId, String score) {
+		this.enrollmentId = enrollmentId;
+		this.studentName = studentName;
+		this.studentEmail = studentEmail;
+		this.assignmentGradeId = assignmentGradeId;
+		this.score = score;
+	}
+
+	@Override
+	public String toString() {
+		return "GradebookRow [enrollmentId=" + enrollmentId + ", studentName=" + studentName + ", studentEmail="
+				+ studentEmail + ", assignmentGradeId=" + assignmentGradeId + ", score=" + score + "]";
+	}
+}
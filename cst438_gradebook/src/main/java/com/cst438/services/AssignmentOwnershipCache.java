@@ -0,0 +1,83 @@
+package com.cst438.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cst438.domain.Assignment;
+import com.cst438.domain.AssignmentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/*
+ * in memory cache of which course and instructor an assignment belongs to.
+ * the instructor check on every gradebook request is answered from here 
+ * instead of loading the assignment and its course.
+ * 
+ * entries are bounded by count and expire after a fixed time, so a change 
+ * made outside this service is picked up after at most the ttl.  
+ * changes made through GradeBookController update the cache directly.
+ */
+@Component
+public class AssignmentOwnershipCache {
+	
+	public static class AssignmentOwner {
+		public final int assignmentId;
+		public final int courseId;
+		public final String instructor;
+		public final String assignmentName;
+		
+		public AssignmentOwner(int assignmentId, int courseId, String instructor, String assignmentName) {
+			this.assignmentId = assignmentId;
+			this.courseId = courseId;
+			this.instructor = instructor;
+			this.assignmentName = assignmentName;
+		}
+
+		@Override
+		public String toString() {
+			return "AssignmentOwner [assignmentId=" + assignmentId + ", courseId=" + courseId + ", instructor="
+					+ instructor + ", assignmentName=" + assignmentName + "]";
+		}
+	}
+	
+	@Autowired
+	AssignmentRepository assignmentRepository;
+	
+	private final Cache<Integer, AssignmentOwner> cache;
+	
+	public AssignmentOwnershipCache(
+			@Value("${gradebook.ownership-cache.max-size:10000}") long maxSize,
+			@Value("${gradebook.ownership-cache.ttl-seconds:600}") long ttlSeconds) {
+		cache = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.build();
+	}
+	
+	/*
+	 * owner of the assignment, loaded from the database on a miss.  
+	 * returns null if the assignment does not exist (misses are not cached).
+	 */
+	public AssignmentOwner get(int assignmentId) {
+		return cache.get(assignmentId, id -> {
+			Assignment a = assignmentRepository.findById(id).orElse(null);
+			return (a == null) ? null : of(a);
+		});
+	}
+	
+	public void put(Assignment assignment) {
+		cache.put(assignment.getId(), of(assignment));
+	}
+	
+	public void invalidate(int assignmentId) {
+		cache.invalidate(assignmentId);
+	}
+	
+	private static AssignmentOwner of(Assignment a) {
+		return new AssignmentOwner(a.getId(), a.getCourse().getCourse_id(), a.getCourse().getInstructor(), a.getName());
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.cst438.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.cst438.domain.AssignmentRepository;
+import com.cst438.domain.Course;
+import com.cst438.domain.CourseRepository;
+import com.cst438.domain.EnrollmentDTO;
+import com.cst438.domain.EnrollmentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/*
+ * adds enrollments from the registration service, over REST or MQ.
+ * 
+ * the same enrollment can arrive more than once (redelivered messages, retried 
+ * requests).  a bounded in memory window of recently added (course, student) 
+ * pairs drops most repeats without touching the database, and the unique key 
+ * on enrollment (course_id, student_email) makes the insert itself idempotent 
+ * for the ones the window does not know about.  pairs are added to the window 
+ * only after the transaction committed.
+ */
+@Service
+public class EnrollmentIngestService {
+	
+	// outcome of each enrollment given to enrollAll
+	public static final String ACCEPTED = "accepted";
+	public static final String DUPLICATE = "duplicate";
+	public static final String UNKNOWN_COURSE = "unknown course";
+	public static final String MISSING_EMAIL = "missing student email";
+	
+	@Autowired
+	CourseRepository courseRepository;
+	
+	@Autowired
+	EnrollmentRepository enrollmentRepository;
+	
+	@Autowired
+	AssignmentRepository assignmentRepository;
+	
+	// (course, student) -> enrollment id, or 0 when the id is not known (batch inserts)
+	private final Cache<String, Integer> recent;
+	
+	public EnrollmentIngestService(
+			@Value("${gradebook.enrollment-dedup.max-size:100000}") long maxSize,
+			@Value("${gradebook.enrollment-dedup.ttl-seconds:3600}") long ttlSeconds) {
+		recent = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.build();
+	}
+	
+	/*
+	 * add one enrollment and return it with its id.  if the student is already 
+	 * enrolled in the course the existing id is returned.
+	 */
+	@Transactional
+	public EnrollmentDTO enroll(EnrollmentDTO enrollmentDTO) {
+		if (enrollmentDTO.studentEmail == null) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Student email is required.");
+		}
+		String key = key(enrollmentDTO);
+		Integer id = recent.getIfPresent(key);
+		if (id != null && id != 0) {
+			enrollmentDTO.id = id;
+			return enrollmentDTO;
+		}
+		if (!courseRepository.findById(enrollmentDTO.course_id).isPresent()) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Course id not found.");
+		}
+		enrollmentDTO.id = enrollmentRepository.upsertEnrollment(enrollmentDTO);
+		// a new student leaves past due assignments of the course ungraded
+		assignmentRepository.refreshGradingStatusOfCourses(Collections.singleton(enrollmentDTO.course_id));
+		rememberAfterCommit(Collections.singletonMap(key, enrollmentDTO.id));
+		return enrollmentDTO;
+	}
+	
+	/*
+	 * add a batch of enrollments with one insert.  repeats, within the batch, seen 
+	 * recently or already in the database, enrollments without an email and 
+	 * enrollments for courses that do not exist are dropped.  returns the outcome 
+	 * of each enrollment, in the order given.
+	 */
+	@Transactional
+	public List<String> enrollAll(List<EnrollmentDTO> enrollments) {
+		String[] status = new String[enrollments.size()];
+		Map<String, Integer> fresh = new HashMap<>();	// key -> index of first occurrence
+		Set<Integer> courseIds = new HashSet<>();
+		for (int i = 0; i < enrollments.size(); i++) {
+			EnrollmentDTO dto = enrollments.get(i);
+			if (dto.studentEmail == null) {
+				status[i] = MISSING_EMAIL;
+				continue;
+			}
+			String key = key(dto);
+			if (recent.getIfPresent(key) != null || fresh.putIfAbsent(key, i) != null) {
+				status[i] = DUPLICATE;
+				continue;
+			}
+			courseIds.add(dto.course_id);
+		}
+		
+		Set<Integer> knownCourseIds = new HashSet<>();
+		for (Course c : courseRepository.findAllById(courseIds)) {
+			knownCourseIds.add(c.getCourse_id());
+		}
+		
+		Set<String> emails = new HashSet<>();
+		for (Map.Entry<String, Integer> entry : fresh.entrySet()) {
+			EnrollmentDTO dto = enrollments.get(entry.getValue());
+			if (knownCourseIds.contains(dto.course_id)) {
+				emails.add(dto.studentEmail);
+			} else {
+				status[entry.getValue()] = UNKNOWN_COURSE;
+			}
+		}
+		
+		// students already in the database are duplicates too, the upsert would leave their row alone
+		Set<String> existing = new HashSet<>();
+		if (!emails.isEmpty()) {
+			for (Object[] row : enrollmentRepository.findExistingEnrollments(knownCourseIds, emails)) {
+				existing.add(row[0] + "|" + ((String) row[1]).toLowerCase());
+			}
+		}
+		
+		List<EnrollmentDTO> accepted = new ArrayList<>(fresh.size());
+		Map<String, Integer> keys = new HashMap<>();
+		for (Map.Entry<String, Integer> entry : fresh.entrySet()) {
+			if (status[entry.getValue()] != null) {
+				continue;
+			}
+			keys.put(entry.getKey(), 0);
+			if (existing.contains(entry.getKey())) {
+				status[entry.getValue()] = DUPLICATE;
+			} else {
+				accepted.add(enrollments.get(entry.getValue()));
+				status[entry.getValue()] = ACCEPTED;
+			}
+		}
+		enrollmentRepository.upsertEnrollments(accepted);
+		if (!accepted.isEmpty()) {
+			knownCourseIds.clear();
+			for (EnrollmentDTO dto : accepted) {
+				knownCourseIds.add(dto.course_id);
+			}
+			assignmentRepository.refreshGradingStatusOfCourses(knownCourseIds);
+		}
+		rememberAfterCommit(keys);
+		return Arrays.asList(status);
+	}
+	
+	// email is compared case insensitive, the same as the unique key in the database
+	private static String key(EnrollmentDTO dto) {
+		return dto.course_id + "|" + dto.studentEmail.toLowerCase();
+	}
+	
+	/*
+	 * a rolled back insert must not end up in the window, or the redelivery 
+	 * that follows would be dropped.
+	 */
+	private void rememberAfterCommit(Map<String, Integer> keys) {
+		if (keys.isEmpty()) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					recent.putAll(keys);
+				}
+			});
+		} else {
+			recent.putAll(keys);
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.cst438.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.cst438.domain.CourseDTOG;
+import com.cst438.domain.FinalGradeOutbox;
+
+/*
+ * sends the final grades in the outbox to the registration service.
+ * 
+ * rows are claimed in a short transaction and sent after it committed, so no 
+ * database locks are held while waiting on the registration service.  a batch 
+ * is sent with one call to sendFinalGrades(List); if that fails the whole 
+ * batch is retried, which is safe because the final grades of a course 
+ * replace the ones sent before.  FinalGradeOutboxService keeps that true by 
+ * never sending an older row of a course after a newer one (see SUPERSEDED).
+ */
+@Component
+@ConditionalOnProperty(prefix = "gradebook.outbox", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class FinalGradeDispatcher {
+	
+	@Autowired
+	FinalGradeOutboxService outboxService;
+	
+	@Autowired
+	RegistrationService registrationService;
+	
+	@Value("${gradebook.outbox.batch-size:50}")
+	int batchSize;
+	
+	@Value("${gradebook.outbox.lease-ms:60000}")
+	long leaseMs;
+	
+	@Scheduled(fixedDelayString = "${gradebook.outbox.poll-ms:1000}")
+	public void dispatch() {
+		List<FinalGradeOutbox> rows;
+		do {
+			rows = outboxService.claimDue(batchSize, leaseMs);
+			if (rows.isEmpty()) {
+				return;
+			}
+			List<Long> ids = new ArrayList<>();
+			List<CourseDTOG> courses = new ArrayList<>();
+			List<Long> unreadable = new ArrayList<>();
+			for (FinalGradeOutbox row : rows) {
+				try {
+					courses.add(outboxService.readPayload(row));
+					ids.add(row.getId());
+				} catch (Exception e) {
+					unreadable.add(row.getId());
+				}
+			}
+			if (!unreadable.isEmpty()) {
+				outboxService.markUnreadable(unreadable, "payload could not be read");
+			}
+			if (courses.isEmpty()) {
+				continue;
+			}
+			try {
+				registrationService.sendFinalGrades(courses);
+				outboxService.markSent(ids);
+			} catch (Exception e) {
+				System.out.println("Sending final grades failed for " + ids.size() + " courses: " + e.getMessage());
+				outboxService.markFailed(ids, e.toString());
+				// the registration service is probably down, wait for the next poll
+				return;
+			}
+		} while (rows.size() == batchSize);
+	}
+
+}
@@ -0,0 +1,398 @@
+package com.cst438.services;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.cst438.domain.CourseDTOG;
+import com.cst438.domain.CourseRepository;
+import com.cst438.domain.EnrollmentRepository;
+import com.cst438.domain.FinalGradeJob;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/*
+ * finalizes every course of a term, or one course, in the background.
+ * 
+ * courses are finalized on a fixed size pool, so a term with hundreds of 
+ * courses does not use more database connections than the pool has threads.  
+ * a course with more than partitionSize students is split into ranges of 
+ * enrollment ids that are computed by different workers; the grades of the 
+ * parts are put together into one message for the course once every part is 
+ * computed, and the course fails if any part does.  finished courses are 
+ * written to the final grade outbox batchSize at a time, one transaction per 
+ * batch, and FinalGradeDispatcher sends them to the registration service.  
+ * a course counts as done when its batch is committed.
+ * 
+ * jobs are kept in memory for retentionMinutes so their status can be read.  
+ * while a job for a course is running, another request for the same course 
+ * gets that job instead of starting a second one.  when a job finishes it is 
+ * posted to the callback urls given when it was requested; only urls whose 
+ * scheme, host and port are those of one of callbackOrigins are accepted.
+ * 
+ * a task the pool does not accept (it is shutting down) fails its course, 
+ * so the job still finishes.
+ */
+@Service
+public class FinalGradeJobService {
+	
+	@Autowired
+	CourseRepository courseRepository;
+	
+	@Autowired
+	EnrollmentRepository enrollmentRepository;
+	
+	@Autowired
+	FinalGradeService finalGradeService;
+	
+	@Autowired
+	FinalGradeOutboxService finalGradeOutboxService;
+	
+	@Value("${gradebook.final-grade-jobs.partition-size:2000}")
+	int partitionSize;
+	
+	@Value("${gradebook.final-grade-jobs.batch-size:50}")
+	int batchSize;
+	
+	// scheme://host[:port] of the services callbacks may be posted to
+	@Value("${gradebook.final-grade-jobs.callback-origins:}")
+	List<String> callbackOrigins;
+	
+	private final ThreadPoolTaskExecutor executor;
+	
+	private final Cache<String, FinalGradeJob> jobs;
+	
+	// course id -> the job running for it
+	private final ConcurrentMap<Integer, Run> runningCourses = new ConcurrentHashMap<>();
+	
+	private final RestTemplate callbackTemplate;
+	
+	public FinalGradeJobService(
+			@Value("${gradebook.final-grade-jobs.pool-size:4}") int poolSize,
+			@Value("${gradebook.final-grade-jobs.retention-minutes:1440}") long retentionMinutes) {
+		// not a bean, so it does not replace the executor spring boot configures for the application
+		executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setThreadNamePrefix("final-grades-");
+		executor.initialize();
+		jobs = Caffeine.newBuilder()
+				.expireAfterWrite(retentionMinutes, TimeUnit.MINUTES)
+				.build();
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setConnectTimeout(2000);
+		requestFactory.setReadTimeout(5000);
+		callbackTemplate = new RestTemplate(requestFactory);
+	}
+	
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+	
+	public FinalGradeJob getJob(String id) {
+		return jobs.getIfPresent(id);
+	}
+	
+	// start finalizing every course of the term and return the job right away
+	public FinalGradeJob startTerm(int year, String semester) {
+		List<Integer> courseIds = courseRepository.findIdsByTerm(year, semester);
+		FinalGradeJob job = new FinalGradeJob(UUID.randomUUID().toString(), year, semester);
+		job.coursesTotal.set(courseIds.size());
+		jobs.put(job.id, job);
+		System.out.println("Final grade job " + job.id + " started for " + courseIds.size() + " courses of " + semester + " " + year);
+		
+		Run run = new Run(job, courseIds.size());
+		if (courseIds.isEmpty()) {
+			run.finish();
+		}
+		for (Integer courseId : courseIds) {
+			try {
+				executor.execute(() -> runCourse(run, courseId));
+			} catch (RejectedExecutionException e) {
+				run.job.coursesFailed.incrementAndGet();
+				run.job.fail(courseId, e);
+				run.taskDone();
+			}
+		}
+		return job;
+	}
+	
+	/*
+	 * start finalizing one course and return the job right away, or return the 
+	 * job already running for the course.  callback may be null.
+	 */
+	public FinalGradeJob startCourse(int courseId, String callback) {
+		if (callback != null && !callbackAllowed(callback)) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Callback url not allowed. "+callback );
+		}
+		boolean[] started = { false };
+		Run run = runningCourses.computeIfAbsent(courseId, id -> {
+			started[0] = true;
+			FinalGradeJob job = new FinalGradeJob(UUID.randomUUID().toString(), id);
+			job.coursesTotal.set(1);
+			jobs.put(job.id, job);
+			return new Run(job, 1);
+		});
+		if (callback != null) {
+			run.addCallback(callback);
+		}
+		if (started[0]) {
+			System.out.println("Final grade job " + run.job.id + " started for course " + courseId);
+			try {
+				executor.execute(() -> runCourse(run, courseId));
+			} catch (RejectedExecutionException e) {
+				// finishing the job takes the course out of runningCourses, so the next request starts a new job
+				run.job.coursesFailed.incrementAndGet();
+				run.job.fail(courseId, e);
+				run.taskDone();
+				throw new ResponseStatusException( HttpStatus.SERVICE_UNAVAILABLE, "Final grade jobs are not accepted now. " );
+			}
+		} else {
+			System.out.println("Final grade job " + run.job.id + " already running for course " + courseId);
+		}
+		return run.job;
+	}
+	
+	/*
+	 * the scheme, host and port of the url must be those of an allowed origin.  
+	 * comparing the parsed url, not its text, keeps out urls like 
+	 * http://allowed.edu.evil.com or http://allowed.edu@evil.com.
+	 */
+	private boolean callbackAllowed(String callback) {
+		URI url;
+		try {
+			url = new URI(callback);
+		} catch (URISyntaxException e) {
+			return false;
+		}
+		if (url.getScheme() == null || url.getHost() == null || url.getRawUserInfo() != null) {
+			return false;
+		}
+		for (String origin : callbackOrigins) {
+			if (origin.trim().isEmpty()) {
+				continue;
+			}
+			URI allowed = URI.create(origin.trim());
+			if (url.getScheme().equalsIgnoreCase(allowed.getScheme())
+					&& url.getHost().equalsIgnoreCase(allowed.getHost())
+					&& port(url) == port(allowed)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static int port(URI url) {
+		if (url.getPort() != -1) {
+			return url.getPort();
+		}
+		return "https".equalsIgnoreCase(url.getScheme()) ? 443 : 80;
+	}
+	
+	private void runCourse(Run run, int courseId) {
+		try {
+			long students = enrollmentRepository.countByCourseId(courseId);
+			if (students <= partitionSize) {
+				run.job.partsTotal.incrementAndGet();
+				CourseDTOG cdto = finalGradeService.computeFinalGrades(courseId);
+				run.job.partsDone.incrementAndGet();
+				run.add(cdto);
+			} else {
+				// split at every partitionSize'th enrollment id
+				List<Integer> ids = enrollmentRepository.findIdsByCourse(courseId);
+				List<int[]> ranges = new ArrayList<>();
+				for (int i = 0; i < ids.size(); i += partitionSize) {
+					ranges.add(new int[] { ids.get(i), ids.get(Math.min(i + partitionSize, ids.size()) - 1) });
+				}
+				run.job.partsTotal.addAndGet(ranges.size());
+				run.pending.addAndGet(ranges.size());
+				Parts parts = new Parts(courseId, ranges.size());
+				for (int i = 0; i < ranges.size(); i++) {
+					int part = i;
+					int[] range = ranges.get(i);
+					try {
+						executor.execute(() -> runPart(run, parts, part, range[0], range[1]));
+					} catch (RejectedExecutionException e) {
+						partFailed(run, parts, e);
+						run.taskDone();
+					}
+				}
+			}
+		} catch (Exception e) {
+			run.job.coursesFailed.incrementAndGet();
+			run.job.fail(courseId, e);
+		}
+		run.taskDone();
+	}
+	
+	private void runPart(Run run, Parts parts, int part, int fromId, int toId) {
+		try {
+			parts.grades[part] = finalGradeService.computeFinalGrades(parts.courseId, fromId, toId);
+			run.job.partsDone.incrementAndGet();
+			// the worker of the last part puts the course together
+			if (parts.left.decrementAndGet() == 0) {
+				run.add(parts.merge());
+			}
+		} catch (Exception e) {
+			partFailed(run, parts, e);
+		}
+		run.taskDone();
+	}
+	
+	/*
+	 * the course counts as failed once, whichever of its parts failed first, 
+	 * and the parts still running never reach 0
+	 */
+	private void partFailed(Run run, Parts parts, Exception e) {
+		if (parts.left.getAndSet(-1) > 0) {
+			run.job.coursesFailed.incrementAndGet();
+		}
+		run.job.fail(parts.courseId, e);
+	}
+	
+	/*
+	 * the parts of one partitioned course.  each part's grades are set by its 
+	 * worker before it decrements left, so the worker that takes left to 0 
+	 * sees all of them.
+	 */
+	private static class Parts {
+		final int courseId;
+		final CourseDTOG[] grades;
+		final AtomicInteger left;
+		
+		Parts(int courseId, int parts) {
+			this.courseId = courseId;
+			this.grades = new CourseDTOG[parts];
+			this.left = new AtomicInteger(parts);
+		}
+		
+		// the grades of every part, in enrollment id order
+		CourseDTOG merge() {
+			CourseDTOG cdto = new CourseDTOG();
+			cdto.course_id = courseId;
+			cdto.grades = new ArrayList<>();
+			for (CourseDTOG part : grades) {
+				cdto.grades.addAll(part.grades);
+			}
+			return cdto;
+		}
+	}
+	
+	/*
+	 * one running job: the tasks not finished yet and the results not yet 
+	 * written to the outbox.  the job is finished when the last task is.
+	 */
+	private class Run {
+		final FinalGradeJob job;
+		final AtomicInteger pending;
+		final List<CourseDTOG> results = new ArrayList<>();
+		final List<String> callbacks = new ArrayList<>();
+		boolean finished;
+		
+		Run(FinalGradeJob job, int tasks) {
+			this.job = job;
+			this.pending = new AtomicInteger(tasks);
+		}
+		
+		void add(CourseDTOG cdto) {
+			List<CourseDTOG> batch = null;
+			synchronized (results) {
+				results.add(cdto);
+				if (results.size() >= batchSize) {
+					batch = new ArrayList<>(results);
+					results.clear();
+				}
+			}
+			if (batch != null) {
+				write(batch);
+			}
+		}
+		
+		void taskDone() {
+			if (pending.decrementAndGet() == 0) {
+				finish();
+			}
+		}
+		
+		void finish() {
+			List<CourseDTOG> batch;
+			synchronized (results) {
+				batch = new ArrayList<>(results);
+				results.clear();
+			}
+			if (!batch.isEmpty()) {
+				write(batch);
+			}
+			job.finish();
+			System.out.println("Final grade job finished " + job);
+			if (job.courseId != null) {
+				runningCourses.remove(job.courseId, this);
+			}
+			List<String> urls;
+			synchronized (callbacks) {
+				finished = true;
+				urls = new ArrayList<>(callbacks);
+			}
+			for (String url : urls) {
+				postCallback(url);
+			}
+		}
+		
+		// a callback added after the job finished is called right away
+		void addCallback(String url) {
+			synchronized (callbacks) {
+				if (!finished) {
+					callbacks.add(url);
+					return;
+				}
+			}
+			try {
+				executor.execute(() -> postCallback(url));
+			} catch (RejectedExecutionException e) {
+				postCallback(url);
+			}
+		}
+		
+		private void postCallback(String url) {
+			try {
+				callbackTemplate.postForEntity(url, job, Void.class);
+			} catch (Exception e) {
+				System.out.println("Final grade job " + job.id + " callback to " + url + " failed: " + e.getMessage());
+			}
+		}
+		
+		// each course is in one batch only, so it is counted once, done or failed
+		private void write(List<CourseDTOG> batch) {
+			try {
+				finalGradeOutboxService.enqueueAll(batch);
+			} catch (Exception e) {
+				for (CourseDTOG cdto : batch) {
+					job.coursesFailed.incrementAndGet();
+					job.fail(cdto.course_id, e);
+				}
+				return;
+			}
+			job.coursesDone.addAndGet(batch.size());
+		}
+	}
+
+}
@@ -0,0 +1,177 @@
+package com.cst438.services;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cst438.domain.CourseDTOG;
+import com.cst438.domain.FinalGradeOutbox;
+import com.cst438.domain.FinalGradeOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * final grades are written to the final_grade_outbox table in the same 
+ * transaction that calculated them, and FinalGradeDispatcher sends them 
+ * to the registration service later.  a slow or unavailable registration 
+ * service no longer holds the request (and its database connection) open, 
+ * and grades are not lost when the send fails.
+ * 
+ * the registration service keeps the final grades of a course it received 
+ * last, so rows of a course must not be sent out of order.  a newer row for 
+ * a course supersedes the older rows that were not sent: they are marked 
+ * SUPERSEDED when it is enqueued, when they are claimed, or when they fail.  
+ * a row is also not claimed while an older row of its course is being sent.
+ */
+@Service
+public class FinalGradeOutboxService {
+	
+	@Autowired
+	FinalGradeOutboxRepository finalGradeOutboxRepository;
+	
+	@Autowired
+	ObjectMapper objectMapper;
+	
+	@Value("${gradebook.outbox.max-attempts:10}")
+	int maxAttempts;
+	
+	@Value("${gradebook.outbox.backoff-ms:1000}")
+	long backoffMs;
+	
+	@Value("${gradebook.outbox.max-backoff-ms:300000}")
+	long maxBackoffMs;
+	
+	@Transactional
+	public void enqueue(CourseDTOG courseDTO) {
+		String payload;
+		try {
+			payload = objectMapper.writeValueAsString(courseDTO);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Final grades for course " + courseDTO.course_id + " could not be serialized", e);
+		}
+		finalGradeOutboxRepository.supersedePending(courseDTO.course_id);
+		finalGradeOutboxRepository.save(new FinalGradeOutbox(courseDTO.course_id, payload));
+	}
+	
+	// several courses in one transaction
+	@Transactional
+	public void enqueueAll(List<CourseDTOG> courseDTOs) {
+		for (CourseDTOG courseDTO : courseDTOs) {
+			enqueue(courseDTO);
+		}
+	}
+	
+	/*
+	 * claim up to limit rows that are due.  the rows are SENDING until leaseMs 
+	 * from now; if they are not marked sent or failed by then another dispatch 
+	 * picks them up again.
+	 */
+	@Transactional
+	public List<FinalGradeOutbox> claimDue(int limit, long leaseMs) {
+		long now = System.currentTimeMillis();
+		List<FinalGradeOutbox> due = finalGradeOutboxRepository.lockDue(new Timestamp(now), limit);
+		if (due.isEmpty()) {
+			return due;
+		}
+		Set<Integer> courseIds = new HashSet<>();
+		for (FinalGradeOutbox row : due) {
+			courseIds.add(row.getCourseId());
+		}
+		Map<Integer, Long> newest = newestIds(courseIds);
+		Set<Integer> beingSent = new HashSet<>(finalGradeOutboxRepository.findCoursesBeingSent(courseIds, new Timestamp(now)));
+		List<FinalGradeOutbox> claimed = new ArrayList<>(due.size());
+		for (FinalGradeOutbox row : due) {
+			if (row.getId() < newest.get(row.getCourseId())) {
+				row.setStatus(FinalGradeOutbox.SUPERSEDED);
+			} else if (!beingSent.contains(row.getCourseId())) {
+				row.setStatus(FinalGradeOutbox.SENDING);
+				row.setAttempts(row.getAttempts() + 1);
+				row.setNextAttemptAt(new Timestamp(now + leaseMs));
+				claimed.add(row);
+			}
+			// else left PENDING until the older row of the course is sent or fails
+		}
+		return claimed;
+	}
+	
+	@Transactional
+	public void markSent(List<Long> ids) {
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		for (FinalGradeOutbox row : finalGradeOutboxRepository.findAllById(ids)) {
+			row.setStatus(FinalGradeOutbox.SENT);
+			row.setSentAt(now);
+			row.setLastError(null);
+		}
+	}
+	
+	/*
+	 * schedule a retry with exponential backoff and some jitter, so rows that 
+	 * failed together do not all retry at the same moment.  after maxAttempts 
+	 * the row is left FAILED for someone to look at.
+	 */
+	@Transactional
+	public void markFailed(List<Long> ids, String error) {
+		long now = System.currentTimeMillis();
+		if (error != null && error.length() > 1000) {
+			error = error.substring(0, 1000);
+		}
+		List<FinalGradeOutbox> rows = new ArrayList<>();
+		Set<Integer> courseIds = new HashSet<>();
+		for (FinalGradeOutbox row : finalGradeOutboxRepository.findAllById(ids)) {
+			rows.add(row);
+			courseIds.add(row.getCourseId());
+		}
+		Map<Integer, Long> newest = newestIds(courseIds);
+		for (FinalGradeOutbox row : rows) {
+			row.setLastError(error);
+			if (row.getId() < newest.get(row.getCourseId())) {
+				// retrying would send older grades after the newer ones
+				row.setStatus(FinalGradeOutbox.SUPERSEDED);
+				continue;
+			}
+			if (row.getAttempts() >= maxAttempts) {
+				row.setStatus(FinalGradeOutbox.FAILED);
+				System.out.println("Final grades for course " + row.getCourseId() + " failed after " + row.getAttempts() + " attempts: " + error);
+				continue;
+			}
+			long backoff = Math.min(maxBackoffMs, backoffMs << Math.min(row.getAttempts() - 1, 20));
+			backoff += ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+			row.setStatus(FinalGradeOutbox.PENDING);
+			row.setNextAttemptAt(new Timestamp(now + backoff));
+		}
+	}
+	
+	// rows that can never be sent, a payload that cannot be read, are not retried
+	@Transactional
+	public void markUnreadable(List<Long> ids, String error) {
+		for (FinalGradeOutbox row : finalGradeOutboxRepository.findAllById(ids)) {
+			row.setStatus(FinalGradeOutbox.FAILED);
+			row.setLastError(error);
+			System.out.println("Final grades for course " + row.getCourseId() + " failed: " + error);
+		}
+	}
+	
+	private Map<Integer, Long> newestIds(Set<Integer> courseIds) {
+		Map<Integer, Long> newest = new HashMap<>();
+		for (Object[] row : finalGradeOutboxRepository.findNewestIds(courseIds)) {
+			newest.put((Integer) row[0], (Long) row[1]);
+		}
+		return newest;
+	}
+	
+	public CourseDTOG readPayload(FinalGradeOutbox row) throws IOException {
+		return objectMapper.readValue(row.getPayload(), CourseDTOG.class);
+	}
+
+}
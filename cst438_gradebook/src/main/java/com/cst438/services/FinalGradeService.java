@@ -0,0 +1,53 @@
+package com.cst438.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cst438.domain.CourseDTOG;
+import com.cst438.domain.EnrollmentGradeSummary;
+import com.cst438.domain.EnrollmentGradeTotal;
+import com.cst438.domain.EnrollmentRepository;
+
+/*
+ * letter grades of the students of a course, for calcFinalGrades and the 
+ * final grade jobs.  the letter grades are read from the grade summaries 
+ * kept by GradeWriteService, one row per student.
+ */
+@Service
+public class FinalGradeService {
+	
+	@Autowired
+	EnrollmentRepository enrollmentRepository;
+	
+	@Transactional(readOnly = true)
+	public CourseDTOG computeFinalGrades(int courseId) {
+		return toCourseDTO(courseId, enrollmentRepository.findGradeTotalsByCourse(courseId));
+	}
+	
+	// the students with enrollment id in [fromId, toId] only, one part of a large course
+	@Transactional(readOnly = true)
+	public CourseDTOG computeFinalGrades(int courseId, int fromId, int toId) {
+		return toCourseDTO(courseId, enrollmentRepository.findGradeTotalsByCourseAndIdRange(courseId, fromId, toId));
+	}
+	
+	private CourseDTOG toCourseDTO(int courseId, List<EnrollmentGradeTotal> totals) {
+		CourseDTOG cdto = new CourseDTOG();
+		cdto.course_id = courseId;
+		cdto.grades = new ArrayList<>(totals.size());
+		for (EnrollmentGradeTotal t : totals) {
+			CourseDTOG.GradeDTO gdto = new CourseDTOG.GradeDTO();
+			// a student without a summary has no scores yet
+			gdto.grade = (t.getLetterGrade() == null) ? EnrollmentGradeSummary.letterGrade(0.0) : t.getLetterGrade();
+			gdto.student_email=t.getStudentEmail();
+			gdto.student_name=t.getStudentName();
+			cdto.grades.add(gdto);
+			System.out.println("Course="+courseId+" Student="+t.getStudentEmail()+" grade="+gdto.grade);
+		}
+		return cdto;
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.cst438.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cst438.domain.EnrollmentRepository;
+import com.cst438.domain.GradeExportRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/*
+ * writes gradebook exports as CSV or NDJSON.
+ * 
+ * rows are streamed from the database and written to the output as they are 
+ * read, so only a few rows are in memory at a time whatever the size of the 
+ * course.  the stream needs an open transaction, which is why the writing 
+ * happens here and not in the controller.
+ */
+@Service
+public class GradeExportService {
+	
+	public static final String CSV = "csv";
+	public static final String NDJSON = "ndjson";
+	
+	private static final String CSV_HEADER = "student_email,student_name,assignment_id,assignment_name,score\n";
+	
+	@Autowired
+	EnrollmentRepository enrollmentRepository;
+	
+	@Autowired
+	ObjectMapper objectMapper;
+	
+	@Transactional(readOnly = true)
+	public void writeCourse(int courseId, String format, OutputStream out) throws IOException {
+		try (Stream<GradeExportRow> rows = enrollmentRepository.streamCourseGrades(courseId)) {
+			write(rows, format, out);
+		}
+	}
+	
+	@Transactional(readOnly = true)
+	public void writeAssignment(int assignmentId, String format, OutputStream out) throws IOException {
+		try (Stream<GradeExportRow> rows = enrollmentRepository.streamAssignmentGrades(assignmentId)) {
+			write(rows, format, out);
+		}
+	}
+	
+	private void write(Stream<GradeExportRow> rows, String format, OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		ObjectWriter rowWriter = objectMapper.writerFor(GradeExportRow.class);
+		if (CSV.equals(format)) {
+			writer.write(CSV_HEADER);
+		}
+		Iterator<GradeExportRow> it = rows.iterator();
+		while (it.hasNext()) {
+			GradeExportRow row = it.next();
+			if (CSV.equals(format)) {
+				writer.write(csv(row.studentEmail));
+				writer.write(',');
+				writer.write(csv(row.studentName));
+				writer.write(',');
+				writer.write(Integer.toString(row.assignmentId));
+				writer.write(',');
+				writer.write(csv(row.assignmentName));
+				writer.write(',');
+				writer.write(csv(row.score));
+				writer.write('\n');
+			} else {
+				writer.write(rowWriter.writeValueAsString(row));
+				writer.write('\n');
+			}
+		}
+		writer.flush();
+	}
+	
+	/*
+	 * quote a CSV field when it contains a separator, quote or line break.  a value 
+	 * that a spreadsheet would run as a formula (starting with = + - @, tab or 
+	 * carriage return) is prefixed with ' so it is shown as text; GradeImportService 
+	 * removes the prefix again with fromCsv.
+	 */
+	private static String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (isFormula(value)) {
+			value = "'" + value;
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+	
+	// a CSV value as written by csv, without the ' added in front of a formula
+	static String fromCsv(String value) {
+		if (value.length() > 1 && value.charAt(0) == '\'' && isFormula(value.substring(1))) {
+			return value.substring(1);
+		}
+		return value;
+	}
+	
+	private static boolean isFormula(String value) {
+		return !value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0;
+	}
+
+}
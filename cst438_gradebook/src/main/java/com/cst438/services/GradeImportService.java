@@ -0,0 +1,181 @@
+package com.cst438.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.cst438.domain.AssignmentRepository;
+import com.cst438.domain.EnrollmentRepository;
+import com.cst438.domain.GradeImportResultDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/*
+ * imports scores of a course from CSV.
+ * 
+ * the CSV has a header row with at least the columns student_email, assignment_id 
+ * and score; other columns are ignored, so a course export can be edited and 
+ * imported again.  rows are parsed as they are read and written chunkSize rows 
+ * at a time, each chunk in its own transaction.  a row with an unknown student 
+ * or assignment, or a score too long for the score column, is reported and 
+ * skipped.  scores are text, the same as PUT /gradebook accepts, so a score 
+ * such as "A-" is saved and only numeric scores count in the grade summary.  
+ * the ' an export puts in front of a value that looks like a formula ("'-5") 
+ * is removed.  
+ * a blank score clears the grade of a student who has one; no grade row is 
+ * added for a student who does not.
+ */
+@Service
+public class GradeImportService {
+	
+	private static final CSVFormat FORMAT = CSVFormat.DEFAULT.builder()
+			.setHeader()
+			.setSkipHeaderRecord(true)
+			.setIgnoreSurroundingSpaces(true)
+			.setIgnoreEmptyLines(true)
+			.build();
+	
+	private static final List<String> REQUIRED_COLUMNS = Arrays.asList("student_email", "assignment_id", "score");
+	
+	// assignment_grade.score is varchar(255)
+	private static final int MAX_SCORE_LENGTH = 255;
+	
+	@Autowired
+	EnrollmentRepository enrollmentRepository;
+	
+	@Autowired
+	AssignmentRepository assignmentRepository;
+	
+	@Autowired
+	GradeWriteService gradeWriteService;
+	
+	@Autowired
+	ObjectMapper objectMapper;
+	
+	@Value("${gradebook.grade-import.chunk-size:1000}")
+	int chunkSize;
+	
+	/*
+	 * import the CSV from in and write a GradeImportResultDTO line (NDJSON) to out 
+	 * for every row that was not imported, and the totals at the end.
+	 */
+	public void importCourse(int courseId, Reader in, OutputStream out) throws IOException {
+		ObjectWriter resultWriter = objectMapper.writerFor(GradeImportResultDTO.class);
+		
+		// the roster and assignments of the course are small next to the number of rows
+		Map<String, Integer> enrollmentIds = new HashMap<>();
+		for (Object[] e : enrollmentRepository.findIdsAndEmailsByCourse(courseId)) {
+			if (e[1] != null) {
+				enrollmentIds.put(((String) e[1]).toLowerCase(), (Integer) e[0]);
+			}
+		}
+		Set<Integer> assignmentIds = new HashSet<>(assignmentRepository.findIdsByCourse(courseId));
+		
+		Map<Integer, Map<Integer, String>> chunk = new HashMap<>();
+		int rows = 0;
+		int imported = 0;
+		int chunkRows = 0;
+		try (CSVParser parser = FORMAT.parse(in)) {
+			if (parser.getHeaderMap() == null || !parser.getHeaderMap().keySet().containsAll(REQUIRED_COLUMNS)) {
+				write(out, resultWriter, GradeImportResultDTO.error(0, null, "header must have student_email, assignment_id and score"));
+				write(out, resultWriter, GradeImportResultDTO.totals(0, 0));
+				return;
+			}
+			Iterator<CSVRecord> records = parser.iterator();
+			while (true) {
+				CSVRecord record;
+				try {
+					if (!records.hasNext()) {
+						break;
+					}
+					record = records.next();
+				} catch (UncheckedIOException | IllegalStateException e) {
+					write(out, resultWriter, GradeImportResultDTO.error(rows + 1, null, "invalid CSV: " + e.getMessage()));
+					break;
+				}
+				rows++;
+				String error = addRow(record, enrollmentIds, assignmentIds, chunk);
+				if (error != null) {
+					write(out, resultWriter, GradeImportResultDTO.error(rows, record.isSet("student_email") ? record.get("student_email") : null, error));
+					continue;
+				}
+				chunkRows++;
+				if (chunkRows == chunkSize) {
+					imported += writeChunk(chunk, chunkRows, rows, out, resultWriter);
+					chunkRows = 0;
+				}
+			}
+		}
+		imported += writeChunk(chunk, chunkRows, rows, out, resultWriter);
+		write(out, resultWriter, GradeImportResultDTO.totals(rows, imported));
+	}
+	
+	// validate a row and add it to the chunk.  returns the error, or null if the row is valid.
+	private String addRow(CSVRecord record, Map<String, Integer> enrollmentIds, Set<Integer> assignmentIds,
+			Map<Integer, Map<Integer, String>> chunk) {
+		if (!record.isConsistent()) {
+			return "wrong number of columns";
+		}
+		String email = GradeExportService.fromCsv(record.get("student_email"));
+		Integer enrollmentId = enrollmentIds.get(email.toLowerCase());
+		if (enrollmentId == null) {
+			return "student not enrolled in course";
+		}
+		int assignmentId;
+		try {
+			assignmentId = Integer.parseInt(record.get("assignment_id"));
+		} catch (NumberFormatException e) {
+			return "invalid assignment_id";
+		}
+		if (!assignmentIds.contains(assignmentId)) {
+			return "assignment not in course";
+		}
+		String score = GradeExportService.fromCsv(record.get("score"));
+		if (score.length() > MAX_SCORE_LENGTH) {
+			return "score longer than " + MAX_SCORE_LENGTH + " characters";
+		}
+		chunk.computeIfAbsent(assignmentId, id -> new HashMap<>()).put(enrollmentId, score);
+		return null;
+	}
+	
+	// commit the chunk and return the number of rows imported
+	private int writeChunk(Map<Integer, Map<Integer, String>> chunk, int chunkRows, int lastRow, 
+			OutputStream out, ObjectWriter resultWriter) throws IOException {
+		if (chunk.isEmpty()) {
+			return 0;
+		}
+		try {
+			gradeWriteService.upsertScores(chunk);
+			return chunkRows;
+		} catch (RuntimeException e) {
+			// the chunk was rolled back, the import goes on with the next one
+			write(out, resultWriter, GradeImportResultDTO.error(lastRow, null, 
+					"rows up to " + lastRow + " not saved (" + chunkRows + " rows): " + e.getMessage()));
+			return 0;
+		} finally {
+			chunk.clear();
+			out.flush();
+		}
+	}
+	
+	private void write(OutputStream out, ObjectWriter resultWriter, GradeImportResultDTO result) throws IOException {
+		out.write(resultWriter.writeValueAsBytes(result));
+		out.write('\n');
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.cst438.services;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.cst438.domain.EnrollmentGradeSummaryRepository;
+
+/*
+ * finds grade summaries that no longer match the scores (scores changed 
+ * outside the application, a failed deploy, a bug) and rebuilds them.
+ * 
+ * the enrollment table is walked in primary key ranges, the same way as the 
+ * V8 score_value backfill, and each range is compared and repaired in its own 
+ * short transaction so grading is not blocked while the check runs.
+ */
+@Component
+@ConditionalOnProperty(prefix = "gradebook.grade-summary-check", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class GradeSummaryChecker {
+	
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	
+	@Autowired
+	EnrollmentGradeSummaryRepository enrollmentGradeSummaryRepository;
+	
+	@Autowired
+	GradeWriteService gradeWriteService;
+	
+	@Value("${gradebook.grade-summary-check.chunk-size:1000}")
+	int chunkSize;
+	
+	@Scheduled(cron = "${gradebook.grade-summary-check.cron:0 30 2 * * *}")
+	public void check() {
+		Integer minId = jdbcTemplate.queryForObject("select min(id) from enrollment", Integer.class);
+		Integer maxId = jdbcTemplate.queryForObject("select max(id) from enrollment", Integer.class);
+		if (minId == null) {
+			return;
+		}
+		int rebuilt = 0;
+		for (int from = minId; from <= maxId; from += chunkSize) {
+			List<Integer> drifted = enrollmentGradeSummaryRepository.findDriftedEnrollmentIds(from, from + chunkSize - 1);
+			if (!drifted.isEmpty()) {
+				gradeWriteService.refreshSummaries(drifted);
+				rebuilt += drifted.size();
+			}
+		}
+		System.out.println("Grade summary check rebuilt " + rebuilt + " enrollment summaries");
+	}
+
+}
@@ -0,0 +1,141 @@
+package com.cst438.services;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cst438.domain.AssignmentGrade;
+import com.cst438.domain.AssignmentGradeRepository;
+import com.cst438.domain.AssignmentRepository;
+import com.cst438.domain.EnrollmentGradeSummary;
+import com.cst438.domain.EnrollmentGradeSummaryRepository;
+import com.cst438.domain.EnrollmentRepository;
+
+/*
+ * all writes of assignment scores go through here, from the gradebook page 
+ * and from CSV imports, so anything that has to follow a score change is 
+ * done in one place.
+ * 
+ * after every write the graded count and needs_grading flag of the assignments 
+ * written are recounted in the same transaction, so the instructor's list of 
+ * assignments to grade is read from the flag and not computed per request.  
+ * the grade summary (score total, count and letter grade) of every student 
+ * whose score was written is rewritten in the same transaction too, so final 
+ * grades are read one row per student.
+ * 
+ * two transactions writing scores of the same student would each sum the scores 
+ * without the other's and the last one to write the summary would win.  so the 
+ * summaries of the students are locked before their scores are written, and the 
+ * sums are read with a locking read: the second transaction waits for the first 
+ * to commit and then sums its scores too.
+ */
+@Service
+public class GradeWriteService {
+	
+	@Autowired
+	AssignmentGradeRepository assignmentGradeRepository;
+	
+	@Autowired
+	AssignmentRepository assignmentRepository;
+	
+	@Autowired
+	EnrollmentRepository enrollmentRepository;
+	
+	@Autowired
+	EnrollmentGradeSummaryRepository enrollmentGradeSummaryRepository;
+	
+	/*
+	 * a gradebook update of one assignment: existing grade rows whose score was 
+	 * changed and scores by enrollment id of students without a grade row.  the 
+	 * summaries of all the students are locked together before anything is 
+	 * written, so two updates never hold part of each other's locks.  a blank 
+	 * new score adds no row.
+	 */
+	@Transactional
+	public void saveGradebook(int assignmentId, List<AssignmentGrade> changed, Map<Integer, String> newScores) {
+		if (changed.isEmpty() && newScores.isEmpty()) {
+			return;
+		}
+		Set<Integer> enrollmentIds = new HashSet<>(newScores.keySet());
+		for (AssignmentGrade g : changed) {
+			enrollmentIds.add(g.getStudentEnrollment().getId());
+		}
+		enrollmentGradeSummaryRepository.lockSummaries(enrollmentIds);
+		if (!changed.isEmpty()) {
+			// updates are sent to the database as JDBC batches (hibernate.jdbc.batch_size)
+			assignmentGradeRepository.saveAll(changed);
+		}
+		if (!newScores.isEmpty()) {
+			writeScores(assignmentId, newScores);
+		}
+		// flushAutomatically sends the batched updates before the recount
+		assignmentRepository.refreshGradingStatus(Collections.singleton(assignmentId));
+		rewriteSummaries(enrollmentIds);
+	}
+	
+	// scores of several assignments, assignment id -> enrollment id -> score, in one transaction
+	@Transactional
+	public void upsertScores(Map<Integer, Map<Integer, String>> scoresByAssignment) {
+		if (scoresByAssignment.isEmpty()) {
+			return;
+		}
+		Set<Integer> enrollmentIds = new HashSet<>();
+		for (Map<Integer, String> scores : scoresByAssignment.values()) {
+			enrollmentIds.addAll(scores.keySet());
+		}
+		enrollmentGradeSummaryRepository.lockSummaries(enrollmentIds);
+		for (Map.Entry<Integer, Map<Integer, String>> entry : scoresByAssignment.entrySet()) {
+			writeScores(entry.getKey(), entry.getValue());
+		}
+		assignmentRepository.refreshGradingStatus(scoresByAssignment.keySet());
+		rewriteSummaries(enrollmentIds);
+	}
+	
+	private void writeScores(int assignmentId, Map<Integer, String> scoresByEnrollmentId) {
+		Map<Integer, String> scores = new HashMap<>();
+		List<Integer> blank = new ArrayList<>();
+		for (Map.Entry<Integer, String> entry : scoresByEnrollmentId.entrySet()) {
+			if (entry.getValue() == null || entry.getValue().trim().isEmpty()) {
+				blank.add(entry.getKey());
+			} else {
+				scores.put(entry.getKey(), entry.getValue());
+			}
+		}
+		assignmentGradeRepository.upsertScores(assignmentId, scores);
+		assignmentGradeRepository.clearScores(assignmentId, blank);
+	}
+	
+	/*
+	 * rewrite the grade summaries of the enrollments from their scores.  the scores 
+	 * of only these students are read, through the enrollment_id index of 
+	 * assignment_grade.  also used by GradeSummaryChecker to repair summaries.
+	 */
+	@Transactional
+	public void refreshSummaries(Collection<Integer> enrollmentIds) {
+		if (enrollmentIds.isEmpty()) {
+			return;
+		}
+		enrollmentGradeSummaryRepository.lockSummaries(enrollmentIds);
+		rewriteSummaries(enrollmentIds);
+	}
+	
+	// the summaries must be locked already
+	private void rewriteSummaries(Collection<Integer> enrollmentIds) {
+		List<EnrollmentGradeSummary> summaries = new ArrayList<>(enrollmentIds.size());
+		for (Object[] row : enrollmentRepository.sumScoresByIds(enrollmentIds)) {
+			summaries.add(new EnrollmentGradeSummary(((Number) row[0]).intValue(), (BigDecimal) row[1], ((Number) row[2]).intValue()));
+		}
+		enrollmentGradeSummaryRepository.upsertSummaries(summaries);
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.cst438.services;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cst438.domain.AssignmentRepository;
+
+/*
+ * score writes and enrollments keep assignment.needs_grading up to date, but an 
+ * assignment also starts to need grading when its due date passes with nobody 
+ * touching it.  once a day (and at startup, in case a run was missed) the 
+ * assignments that became past due in the last few days are flagged.
+ */
+@Component
+@ConditionalOnProperty(prefix = "gradebook.needs-grading", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class NeedsGradingScheduler {
+	
+	@Autowired
+	AssignmentRepository assignmentRepository;
+	
+	@Value("${gradebook.needs-grading.lookback-days:7}")
+	int lookbackDays;
+	
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(cron = "${gradebook.needs-grading.cron:0 5 0 * * *}")
+	@Transactional
+	public void markPastDue() {
+		Date since = Date.valueOf(LocalDate.now().minusDays(lookbackDays));
+		int updated = assignmentRepository.markPastDue(since);
+		System.out.println("Needs grading set for " + updated + " assignments past due since " + since);
+	}
+
+}
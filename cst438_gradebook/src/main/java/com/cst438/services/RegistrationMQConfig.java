@@ -2,15 +2,18 @@ package com.cst438.services;
 
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
 import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 
 @Configuration
@@ -32,9 +35,84 @@ public class RegistrationMQConfig   implements RabbitListenerConfigurer {
 	public RabbitTemplate rabbitTemplate( ConnectionFactory connectionFactory) {
 		RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
 		rabbitTemplate.setMessageConverter( new Jackson2JsonMessageConverter() );
+		// unroutable messages come back (see CorrelationData.getReturned) instead of being dropped
+		rabbitTemplate.setMandatory(true);
 		return rabbitTemplate;
 	}
 	
+	// settings of the enrollment listener container
+	
+	@Value("${gradebook.enrollment-listener.batch-size:500}")
+	int batchSize;
+	
+	@Value("${gradebook.enrollment-listener.receive-timeout-ms:200}")
+	long receiveTimeoutMs;
+	
+	@Value("${gradebook.enrollment-listener.prefetch:0}")
+	int prefetch;
+	
+	@Value("${gradebook.enrollment-listener.min-consumers:1}")
+	int minConsumers;
+	
+	@Value("${gradebook.enrollment-listener.max-consumers:4}")
+	int maxConsumers;
+	
+	@Value("${gradebook.enrollment-listener.consecutive-active-trigger:10}")
+	int consecutiveActiveTrigger;
+	
+	@Value("${gradebook.enrollment-listener.consecutive-idle-trigger:10}")
+	int consecutiveIdleTrigger;
+	
+	@Value("${gradebook.enrollment-listener.start-consumer-min-interval-ms:10000}")
+	long startConsumerMinIntervalMs;
+	
+	@Value("${gradebook.enrollment-listener.stop-consumer-min-interval-ms:60000}")
+	long stopConsumerMinIntervalMs;
+	
+	/*
+	 * container for the enrollment listener.  messages are collected into a batch 
+	 * of up to batchSize, or whatever arrived when receiveTimeoutMs passes without 
+	 * a new message, and handed to the listener as one List.
+	 * 
+	 * the container starts with minConsumers and adds a consumer (up to maxConsumers) 
+	 * when a consumer received full batches consecutiveActiveTrigger times in a row, 
+	 * i.e. the queue is backing up.  a consumer that was idle consecutiveIdleTrigger 
+	 * times in a row is stopped again.
+	 */
+	@Bean
+	public SimpleRabbitListenerContainerFactory enrollmentBatchContainerFactory(ConnectionFactory connectionFactory) {
+		SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+		factory.setConnectionFactory(connectionFactory);
+		factory.setBatchListener(true);
+		factory.setConsumerBatchEnabled(true);
+		factory.setBatchSize(batchSize);
+		factory.setReceiveTimeout(receiveTimeoutMs);
+		// the broker must be allowed to send at least a full batch before the first ack
+		factory.setPrefetchCount(Math.max(prefetch, batchSize));
+		factory.setConcurrentConsumers(minConsumers);
+		factory.setMaxConcurrentConsumers(Math.max(minConsumers, maxConsumers));
+		factory.setConsecutiveActiveTrigger(consecutiveActiveTrigger);
+		factory.setConsecutiveIdleTrigger(consecutiveIdleTrigger);
+		factory.setStartConsumerMinInterval(startConsumerMinIntervalMs);
+		factory.setStopConsumerMinInterval(stopConsumerMinIntervalMs);
+		factory.setTaskExecutor(enrollmentConsumerExecutor());
+		return factory;
+	}
+	
+	/*
+	 * consumer threads.  the pool keeps maxConsumers threads, so the thread names 
+	 * used as the consumer tag of the enrollment metrics stay the same while 
+	 * consumers are started and stopped.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor enrollmentConsumerExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(Math.max(minConsumers, maxConsumers));
+		executor.setMaxPoolSize(Math.max(minConsumers, maxConsumers));
+		executor.setThreadNamePrefix("enrollment-consumer-");
+		return executor;
+	}
+	
 	@Bean 
 	public MappingJackson2MessageConverter consumerJackson2MessageConverter() {
 		return new MappingJackson2MessageConverter();
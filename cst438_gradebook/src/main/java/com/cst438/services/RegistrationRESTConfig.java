@@ -0,0 +1,76 @@
+package com.cst438.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/*
+ * http client for the registration REST service.  connections are pooled and 
+ * kept alive between calls, and every call has connect, pool and read timeouts 
+ * so a stalled registration host cannot block a thread forever.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "registration", name = "service", havingValue = "REST")
+public class RegistrationRESTConfig {
+	
+	@Value("${registration.rest.max-connections:50}")
+	int maxConnections;
+	
+	@Value("${registration.rest.max-connections-per-route:20}")
+	int maxConnectionsPerRoute;
+	
+	@Value("${registration.rest.connect-timeout-ms:2000}")
+	int connectTimeoutMs;
+	
+	@Value("${registration.rest.connection-request-timeout-ms:1000}")
+	int connectionRequestTimeoutMs;
+	
+	@Value("${registration.rest.read-timeout-ms:5000}")
+	int readTimeoutMs;
+	
+	@Value("${registration.rest.keep-alive-ms:30000}")
+	long keepAliveMs;
+	
+	@Bean(destroyMethod = "close")
+	public CloseableHttpClient registrationHttpClient() {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(keepAliveMs, TimeUnit.MILLISECONDS);
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		// check a connection that sat idle in the pool before reusing it
+		connectionManager.setValidateAfterInactivity(2000);
+		
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(connectTimeoutMs)
+				.setConnectionRequestTimeout(connectionRequestTimeoutMs)
+				.setSocketTimeout(readTimeoutMs)
+				.build();
+		
+		return HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				// keep connections for keepAliveMs unless the server asks for less
+				.setKeepAliveStrategy((response, context) -> {
+					long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+					return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMs) : keepAliveMs;
+				})
+				.evictExpiredConnections()
+				.evictIdleConnections(keepAliveMs, TimeUnit.MILLISECONDS)
+				.build();
+	}
+	
+	@Bean
+	public RestTemplate registrationRestTemplate(CloseableHttpClient registrationHttpClient) {
+		return new RestTemplate(new HttpComponentsClientHttpRequestFactory(registrationHttpClient));
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.cst438.services;
 
+import java.util.List;
+
 import com.cst438.domain.CourseDTOG;
 
 public class RegistrationService {
@@ -7,5 +9,13 @@ public class RegistrationService {
 	public void sendFinalGrades(int course_id , CourseDTOG courseDTO) {
 		
 	}
+	
+	// send the final grades of several courses.  services that can send 
+	// a batch more cheaply than one course at a time override this.
+	public void sendFinalGrades(List<CourseDTOG> courses) {
+		for (CourseDTOG courseDTO : courses) {
+			sendFinalGrades(courseDTO.course_id, courseDTO);
+		}
+	}
 
 }
@@ -1,40 +1,72 @@
 package com.cst438.services;
 
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.connection.CorrelationData.Confirm;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
 
-import com.cst438.domain.Course;
 import com.cst438.domain.CourseDTOG;
-import com.cst438.domain.CourseRepository;
-import com.cst438.domain.Enrollment;
 import com.cst438.domain.EnrollmentDTO;
-import com.cst438.domain.EnrollmentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
 
-public class RegistrationServiceMQ extends RegistrationService {
 
-	@Autowired
-	EnrollmentRepository enrollmentRepository;
+public class RegistrationServiceMQ extends RegistrationService {
 
 	@Autowired
-	CourseRepository courseRepository;
+	EnrollmentIngestService enrollmentIngestService;
 
 	@Autowired
 	private RabbitTemplate rabbitTemplate;
 	
+	@Autowired
+	ObjectMapper objectMapper;
+	
+	@Autowired
+	MeterRegistry meterRegistry;
+	
 	@Value("${registration.url}")
 	String registration_url;
+	
+	@Value("${gradebook.final-grades.confirm-timeout-ms:10000}")
+	long confirmTimeoutMs;
+	
+	@Value("${gradebook.final-grades.max-pending-confirms:100}")
+	int maxPendingConfirms;
+	
+	// limits the number of published messages that are not confirmed yet
+	private Semaphore pendingConfirms;
 
 	public RegistrationServiceMQ() {
 		System.out.println("MQ registration service ");
 	}
+	
+	@PostConstruct
+	void createConfirmWindow() {
+		pendingConfirms = new Semaphore(maxPendingConfirms);
+	}
 
 	// ----- configuration of message queues
 
@@ -46,33 +78,134 @@ public class RegistrationServiceMQ extends RegistrationService {
 
 	// receiver of messages from Registration service
 	
-	@RabbitListener(queues = "gradebook-queue")
-	@Transactional
-	public void receive(EnrollmentDTO enrollmentDTO) {
+	/*
+	 * enrollments arrive in batches of up to gradebook.enrollment-listener.batch-size 
+	 * messages (see RegistrationMQConfig).  EnrollmentIngestService drops repeats, 
+	 * looks up the courses once per batch and inserts the rest in one transaction; 
+	 * the batch is acked together when it commits.  a message that can not be read 
+	 * or names a course that does not exist is logged and dropped, so it can not 
+	 * block the queue.
+	 * 
+	 * if the batch insert fails, the enrollments are inserted one at a time and the 
+	 * ones that still fail are logged and dropped, instead of the whole batch being 
+	 * requeued and failing again forever.  a failure that is likely to go away (the 
+	 * database is unreachable) is thrown so the batch is requeued.
+	 */
+	@RabbitListener(queues = "gradebook-queue", containerFactory = "enrollmentBatchContainerFactory")
+	public void receive(List<Message> messages) {
 		
-		//TODO  complete this method in homework 4
-		Enrollment e = new Enrollment();
-		e.setStudentEmail(enrollmentDTO.studentEmail);
-		e.setStudentName(enrollmentDTO.studentName);
-		Course c = courseRepository.findById(enrollmentDTO.course_id).orElse(null);
-		if(c == null) {
-			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Course id not found.");
+		List<EnrollmentDTO> enrollments = new ArrayList<>(messages.size());
+		for (Message m : messages) {
+			try {
+				enrollments.add(objectMapper.readValue(m.getBody(), EnrollmentDTO.class));
+			} catch (IOException e) {
+				System.out.println("Dropping unreadable enrollment message: " + e.getMessage());
+			}
 		}
-		e.setCourse(c);
-		e = enrollmentRepository.save(e);
-		enrollmentDTO.id = e.getId();
 		
+		List<String> status;
+		try {
+			status = enrollmentIngestService.enrollAll(enrollments);
+		} catch (RuntimeException e) {
+			if (isTransient(e)) {
+				throw e;
+			}
+			System.out.println("Enrollment batch failed, inserting one at a time: " + e.getMessage());
+			status = new ArrayList<>(enrollments.size());
+			for (EnrollmentDTO enrollment : enrollments) {
+				try {
+					status.add(enrollmentIngestService.enrollAll(Collections.singletonList(enrollment)).get(0));
+				} catch (RuntimeException single) {
+					if (isTransient(single)) {
+						throw single;
+					}
+					status.add(single.toString());
+				}
+			}
+		}
+		int accepted = 0;
+		for (int i = 0; i < status.size(); i++) {
+			if (EnrollmentIngestService.ACCEPTED.equals(status.get(i))) {
+				accepted++;
+			} else {
+				System.out.println("Dropping enrollment (" + status.get(i) + "): " + enrollments.get(i));
+			}
+		}
+		
+		// per consumer throughput, tagged with the consumer thread
+		String consumer = Thread.currentThread().getName();
+		meterRegistry.counter("gradebook.enrollment.messages", "consumer", consumer).increment(messages.size());
+		meterRegistry.counter("gradebook.enrollment.inserted", "consumer", consumer).increment(accepted);
+		System.out.println("Received " + messages.size() + " enrollment messages, inserted " + accepted);
+	}
+	
+	private static boolean isTransient(RuntimeException e) {
+		return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+				|| e instanceof CannotCreateTransactionException;
 	}
 
 	// sender of messages to Registration Service
 	@Override
 	public void sendFinalGrades(int course_id, CourseDTOG courseDTO) {
-		System.out.println("Sending final grades" + course_id + "  " + courseDTO);
-		rabbitTemplate.convertAndSend(registrationQueue.getName(),courseDTO);
-		System.out.println("Message send to registration service for course" + course_id); 
-		System.out.println("After sending the final grades");
-		//TODO  complete this method in homework 4
+		sendFinalGrades(Collections.singletonList(courseDTO));
+	}
+	
+	/*
+	 * publish the final grades of the courses on one channel without waiting for 
+	 * each message, then wait until the broker confirmed all of them.  at most 
+	 * maxPendingConfirms messages are unconfirmed at any time.  a message that is 
+	 * nacked, returned as unroutable, or not confirmed within confirmTimeoutMs 
+	 * makes this throw, and the outbox sends the batch again.
+	 */
+	@Override
+	public void sendFinalGrades(List<CourseDTOG> courses) {
+		List<CorrelationData> sent = rabbitTemplate.invoke(ops -> {
+			List<CorrelationData> correlations = new ArrayList<>(courses.size());
+			for (CourseDTOG courseDTO : courses) {
+				acquireConfirmPermit();
+				CorrelationData correlation = new CorrelationData("final-grades-" + courseDTO.course_id + "-" + UUID.randomUUID());
+				correlation.getFuture().addCallback(confirm -> pendingConfirms.release(), ex -> pendingConfirms.release());
+				try {
+					ops.convertAndSend("", registrationQueue.getName(), courseDTO, correlation);
+				} catch (RuntimeException e) {
+					pendingConfirms.release();
+					throw e;
+				}
+				correlations.add(correlation);
+			}
+			return correlations;
+		});
 		
+		long deadline = System.currentTimeMillis() + confirmTimeoutMs;
+		for (CorrelationData correlation : sent) {
+			Confirm confirm;
+			try {
+				confirm = correlation.getFuture().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+			} catch (TimeoutException | ExecutionException e) {
+				throw new AmqpException("No confirm for " + correlation.getId(), e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new AmqpException("Interrupted waiting for confirm of " + correlation.getId(), e);
+			}
+			if (!confirm.isAck()) {
+				throw new AmqpException("Broker nacked " + correlation.getId() + ": " + confirm.getReason());
+			}
+			if (correlation.getReturned() != null) {
+				throw new AmqpException("Broker returned " + correlation.getId() + ": " + correlation.getReturned().getReplyText());
+			}
+		}
+		System.out.println("Final grades of " + courses.size() + " courses confirmed by the broker");
+	}
+	
+	private void acquireConfirmPermit() {
+		try {
+			if (!pendingConfirms.tryAcquire(confirmTimeoutMs, TimeUnit.MILLISECONDS)) {
+				throw new AmqpException("Too many unconfirmed final grade messages");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AmqpException("Interrupted waiting to publish final grades", e);
+		}
 	}
 
 }
@@ -1,18 +1,54 @@
 package com.cst438.services;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.client.RestTemplate;
 
 import com.cst438.domain.CourseDTOG;
 
+import io.github.resilience4j.bulkhead.ThreadPoolBulkhead;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+
+/*
+ * calls to the registration service run on the "registration" bulkhead thread 
+ * pool, are retried with a randomized wait and go through a circuit breaker 
+ * that stops calling a registration service that keeps failing.  the settings 
+ * are the resilience4j.*.instances.registration properties.
+ */
 public class RegistrationServiceREST extends RegistrationService {
 
+	private static final String REGISTRATION = "registration";
+	
+	@Autowired
+	RestTemplate restTemplate;
 	
-	RestTemplate restTemplate = new RestTemplate();
+	@Autowired
+	RetryRegistry retryRegistry;
+	
+	@Autowired
+	CircuitBreakerRegistry circuitBreakerRegistry;
+	
+	@Autowired
+	ThreadPoolBulkheadRegistry bulkheadRegistry;
 	
 	@Value("${registration.url}") 
 	String registration_url;
 	
+	// upper bound for one send including retries
+	@Value("${registration.rest.call-timeout-ms:30000}")
+	long callTimeoutMs;
+	
 	public RegistrationServiceREST() {
 		System.out.println("REST registration service ");
 	}
@@ -20,8 +56,50 @@ public class RegistrationServiceREST extends RegistrationService {
 	@Override
 	public void sendFinalGrades(int course_id , CourseDTOG courseDTO) { 
 		System.out.println("Sending final grades" + course_id + "  " + courseDTO);
-		restTemplate.put(registration_url+"/course/"+course_id, courseDTO);
+		
+		Retry retry = retryRegistry.retry(REGISTRATION);
+		CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(REGISTRATION);
+		ThreadPoolBulkhead bulkhead = bulkheadRegistry.bulkhead(REGISTRATION);
+		
+		Runnable put = () -> restTemplate.put(registration_url+"/course/"+course_id, courseDTO);
+		Runnable call = Retry.decorateRunnable(retry, CircuitBreaker.decorateRunnable(circuitBreaker, put));
+		// the bulkhead thread running the call, so a call that timed out can be interrupted
+		AtomicReference<Thread> worker = new AtomicReference<>();
+		Runnable task = () -> {
+			worker.set(Thread.currentThread());
+			try {
+				call.run();
+			} finally {
+				synchronized (worker) {
+					worker.set(null);
+					// an interrupt that came after the call finished is not left on the pool thread
+					Thread.interrupted();
+				}
+			}
+		};
+		CompletableFuture<Void> future = bulkhead.executeRunnable(task).toCompletableFuture();
+		try {
+			future.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException | CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Sending final grades for course " + course_id + " failed", e.getCause());
+		} catch (TimeoutException e) {
+			// a call still waiting in the bulkhead queue is dropped.  cancel does not interrupt 
+			// a call that is running, so its thread is interrupted and the retries stop.
+			future.cancel(true);
+			synchronized (worker) {
+				Thread running = worker.get();
+				if (running != null) {
+					running.interrupt();
+				}
+			}
+			throw new IllegalStateException("Sending final grades for course " + course_id + " timed out", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted sending final grades for course " + course_id, e);
+		}
 		System.out.println("After sending the final grades");
-		//TODO  complete this method in homework 4
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,86 @@
+package db.migration;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.cst438.domain.AssignmentGrade;
+import com.cst438.domain.EnrollmentGradeSummary;
+
+/*
+ * fills assignment_grade.score_value from the text score for rows written 
+ * before the numeric column existed, once.
+ * 
+ * scores are parsed with AssignmentGrade.parseScore, the same as every score 
+ * written by the application, so a score that is not a number or does not 
+ * fit decimal(6,2) is left null instead of failing the migration.  the table 
+ * is walked in primary key ranges outside a transaction, so every chunk is 
+ * committed on its own and only its rows are locked while it is updated.  
+ * the grade summaries (V7) of the students whose scores were filled are 
+ * recomputed, since they were built before these values existed.
+ */
+public class V8__score_value_backfill extends BaseJavaMigration {
+	
+	private static final int CHUNK_SIZE = 1000;
+	
+	private static final String UPSERT_SUMMARY = 
+			"insert into enrollment_grade_summary (enrollment_id, score_total, score_count, letter_grade) values (?, ?, ?, ?) "
+			+ "on duplicate key update score_total = values(score_total), score_count = values(score_count), "
+			+ "letter_grade = values(letter_grade)";
+	
+	@Override
+	public boolean canExecuteInTransaction() {
+		return false;
+	}
+
+	@Override
+	public void migrate(Context context) {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+		Integer minId = jdbcTemplate.queryForObject("select min(id) from assignment_grade", Integer.class);
+		Integer maxId = jdbcTemplate.queryForObject("select max(id) from assignment_grade", Integer.class);
+		if (minId == null) {
+			return;
+		}
+		int updated = 0;
+		Set<Integer> enrollmentIds = new TreeSet<>();
+		for (int from = minId; from <= maxId; from += CHUNK_SIZE) {
+			List<Object[]> rows = new ArrayList<>();
+			jdbcTemplate.query("select id, enrollment_id, score from assignment_grade where id between ? and ? and score_value is null", 
+					rs -> {
+						BigDecimal value = AssignmentGrade.parseScore(rs.getString("score"));
+						if (value != null) {
+							rows.add(new Object[] { value, rs.getInt("id") });
+							enrollmentIds.add(rs.getInt("enrollment_id"));
+						}
+					}, from, from + CHUNK_SIZE - 1);
+			if (!rows.isEmpty()) {
+				jdbcTemplate.batchUpdate("update assignment_grade set score_value = ? where id = ?", rows);
+				updated += rows.size();
+			}
+		}
+		System.out.println("Score backfill updated " + updated + " assignment grades");
+		
+		List<Integer> ids = new ArrayList<>(enrollmentIds);
+		for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+			List<Integer> chunk = ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size()));
+			String in = String.join(",", Collections.nCopies(chunk.size(), "?"));
+			List<Object[]> summaries = new ArrayList<>();
+			jdbcTemplate.query("select enrollment_id, sum(score_value), count(score_value) from assignment_grade "
+					+ "where enrollment_id in (" + in + ") group by enrollment_id", 
+					rs -> {
+						EnrollmentGradeSummary s = new EnrollmentGradeSummary(rs.getInt(1), rs.getBigDecimal(2), rs.getInt(3));
+						summaries.add(new Object[] { s.getEnrollmentId(), s.getScoreTotal(), s.getScoreCount(), s.getLetterGrade() });
+					}, chunk.toArray());
+			jdbcTemplate.batchUpdate(UPSERT_SUMMARY, summaries);
+		}
+	}
+
+}
@@ -0,0 +1,6 @@
+-- numeric copy of assignment_grade.score, null when the score is not a number.
+-- existing rows are filled in by V8__score_value_backfill.
+
+ALTER TABLE `assignment_grade` 
+  ADD COLUMN `score_value` decimal(6,2) DEFAULT NULL, 
+  ALGORITHM=INPLACE, LOCK=NONE;
@@ -0,0 +1,13 @@
+-- one grade per student and assignment.
+-- duplicates left by concurrent inserts are removed first, the most recent 
+-- grade (highest id) of each student and assignment is kept.
+
+DELETE g FROM `assignment_grade` g
+  JOIN `assignment_grade` newer 
+    ON newer.`assignment_id` = g.`assignment_id` 
+   AND newer.`enrollment_id` = g.`enrollment_id` 
+   AND newer.`id` > g.`id`;
+
+ALTER TABLE `assignment_grade` 
+  ADD UNIQUE KEY `uk_assignment_grade_assignment_enrollment` (`assignment_id`, `enrollment_id`), 
+  ALGORITHM=INPLACE, LOCK=NONE;
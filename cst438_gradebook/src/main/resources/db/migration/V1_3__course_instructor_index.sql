@@ -0,0 +1,5 @@
+-- courses are looked up by instructor for the instructor's assignment list.
+
+ALTER TABLE `course` 
+  ADD INDEX `idx_course_instructor` (`instructor`), 
+  ALGORITHM=INPLACE, LOCK=NONE;
@@ -0,0 +1,44 @@
+-- initial gradebook schema, the tables of db_gradebook.sql before any migration.
+-- an existing database without a flyway history is baselined at this version.
+
+CREATE TABLE `course` (
+  `course_id` int(11) NOT NULL,
+  `instructor` varchar(255) DEFAULT NULL,
+  `semester` varchar(255) DEFAULT NULL,
+  `title` varchar(255) DEFAULT NULL,
+  `year` int(11) NOT NULL,
+  PRIMARY KEY (`course_id`)
+);
+
+CREATE TABLE `enrollment` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `student_email` varchar(255) DEFAULT NULL,
+  `student_name` varchar(255) DEFAULT NULL,
+  `course_id` int(11) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `FKbhhcqkw1px6yljqg92m0sh2gt` (`course_id`),
+  CONSTRAINT `FKbhhcqkw1px6yljqg92m0sh2gt` FOREIGN KEY (`course_id`) REFERENCES `course` (`course_id`)
+);
+
+CREATE TABLE `assignment` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `due_date` date DEFAULT NULL,
+  `name` varchar(255) DEFAULT NULL,
+  `needs_grading` int(11) NOT NULL,
+  `course_id` int(11) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `FKrop26uwnbkstbtfha3ormxp85` (`course_id`),
+  CONSTRAINT `FKrop26uwnbkstbtfha3ormxp85` FOREIGN KEY (`course_id`) REFERENCES `course` (`course_id`)
+);
+
+CREATE TABLE `assignment_grade` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `score` varchar(255) DEFAULT NULL,
+  `assignment_id` int(11) DEFAULT NULL,
+  `enrollment_id` int(11) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `FKph33axj4dnucgpe69qif06dlj` (`assignment_id`),
+  KEY `FKaxh9254n4nfmxxxovn8g591y7` (`enrollment_id`),
+  CONSTRAINT `FKaxh9254n4nfmxxxovn8g591y7` FOREIGN KEY (`enrollment_id`) REFERENCES `enrollment` (`id`),
+  CONSTRAINT `FKph33axj4dnucgpe69qif06dlj` FOREIGN KEY (`assignment_id`) REFERENCES `assignment` (`id`)
+);
@@ -0,0 +1,14 @@
+-- indexes for the columns the repository queries filter on.
+-- indexes are built in place without blocking reads or writes (online DDL),
+-- the tables are not copied.
+--
+-- assignment_grade(assignment_id, enrollment_id) is already covered by 
+-- uk_assignment_grade_assignment_enrollment from V1_2.
+
+ALTER TABLE `assignment` 
+  ADD INDEX `idx_assignment_needs_grading` (`needs_grading`, `due_date`, `course_id`), 
+  ALGORITHM=INPLACE, LOCK=NONE;
+
+ALTER TABLE `enrollment` 
+  ADD INDEX `idx_enrollment_student_email` (`student_email`), 
+  ALGORITHM=INPLACE, LOCK=NONE;
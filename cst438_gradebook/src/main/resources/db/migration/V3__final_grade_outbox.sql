@@ -0,0 +1,16 @@
+-- final grades waiting to be delivered to the registration service.
+-- rows are written in the calcFinalGrades transaction and sent by FinalGradeDispatcher.
+
+CREATE TABLE `final_grade_outbox` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `course_id` int NOT NULL,
+  `payload` mediumtext NOT NULL,
+  `status` varchar(16) NOT NULL,
+  `attempts` int NOT NULL,
+  `next_attempt_at` datetime(6) NOT NULL,
+  `created_at` datetime(6) NOT NULL,
+  `sent_at` datetime(6) DEFAULT NULL,
+  `last_error` varchar(1000) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_final_grade_outbox_due` (`status`, `next_attempt_at`)
+);
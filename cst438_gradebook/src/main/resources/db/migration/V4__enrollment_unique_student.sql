@@ -0,0 +1,31 @@
+-- one enrollment per student and course.
+-- duplicates left by redelivered messages and retried requests are merged 
+-- into the oldest enrollment first.  their grades move to that enrollment 
+-- unless it already has a grade for the same assignment.
+
+CREATE TEMPORARY TABLE `enrollment_duplicate` AS
+  SELECT e.`id` AS `duplicate_id`, k.`keep_id`
+  FROM `enrollment` e
+  JOIN (SELECT `course_id`, `student_email`, MIN(`id`) AS `keep_id`
+        FROM `enrollment`
+        GROUP BY `course_id`, `student_email`
+        HAVING COUNT(*) > 1) k
+    ON e.`course_id` = k.`course_id` AND e.`student_email` = k.`student_email` AND e.`id` <> k.`keep_id`;
+
+-- IGNORE skips grades that would break uk_assignment_grade_assignment_enrollment,
+-- they are deleted with the rest of the duplicate's grades below.
+UPDATE IGNORE `assignment_grade` g
+  JOIN `enrollment_duplicate` d ON g.`enrollment_id` = d.`duplicate_id`
+  SET g.`enrollment_id` = d.`keep_id`;
+
+DELETE g FROM `assignment_grade` g
+  JOIN `enrollment_duplicate` d ON g.`enrollment_id` = d.`duplicate_id`;
+
+DELETE e FROM `enrollment` e
+  JOIN `enrollment_duplicate` d ON e.`id` = d.`duplicate_id`;
+
+DROP TEMPORARY TABLE `enrollment_duplicate`;
+
+ALTER TABLE `enrollment` 
+  ADD UNIQUE KEY `uk_enrollment_course_student` (`course_id`, `student_email`), 
+  ALGORITHM=INPLACE, LOCK=NONE;
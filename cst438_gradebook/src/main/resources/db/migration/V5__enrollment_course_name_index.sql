@@ -0,0 +1,7 @@
+-- gradebook pages are read in (student_name, id) order within a course.
+-- the primary key is part of every secondary index, so this index serves 
+-- the keyset condition and the order by without a sort.
+
+ALTER TABLE `enrollment` 
+  ADD INDEX `idx_enrollment_course_name` (`course_id`, `student_name`), 
+  ALGORITHM=INPLACE, LOCK=NONE;
@@ -0,0 +1,19 @@
+-- assignment.graded_count is the number of students with a score for the assignment.
+-- needs_grading is kept up to date from it: 1 when the assignment is past due and
+-- graded_count is less than the number of students enrolled in the course.
+-- the instructor's list of assignments to grade is then read by (course_id, needs_grading).
+
+ALTER TABLE `assignment`
+  ADD COLUMN `graded_count` int NOT NULL DEFAULT 0,
+  ALGORITHM=INPLACE, LOCK=NONE;
+
+ALTER TABLE `assignment`
+  ADD INDEX `idx_assignment_course_needs_grading` (`course_id`, `needs_grading`),
+  ALGORITHM=INPLACE, LOCK=NONE;
+
+UPDATE `assignment` a
+  SET a.`graded_count` = (SELECT COUNT(*) FROM `assignment_grade` g
+        WHERE g.`assignment_id` = a.`id` AND TRIM(g.`score`) <> ''),
+      a.`needs_grading` = CASE WHEN a.`due_date` < CURRENT_DATE
+        AND a.`graded_count` < (SELECT COUNT(*) FROM `enrollment` e WHERE e.`course_id` = a.`course_id`)
+        THEN 1 ELSE 0 END;
@@ -0,0 +1,25 @@
+-- score total, count and current letter grade of each student enrollment.
+-- rows are rewritten by GradeWriteService in the same transaction as the scores, 
+-- and calcFinalGrades reads the letter grade from here instead of the scores.
+-- students without a row have no scores yet.
+
+CREATE TABLE `enrollment_grade_summary` (
+  `enrollment_id` int NOT NULL,
+  `score_total` decimal(10,2) NOT NULL,
+  `score_count` int NOT NULL,
+  `letter_grade` varchar(2) NOT NULL,
+  PRIMARY KEY (`enrollment_id`),
+  CONSTRAINT `fk_enrollment_grade_summary_enrollment` FOREIGN KEY (`enrollment_id`) REFERENCES `enrollment` (`id`)
+);
+
+-- the letter grade cutoffs are the same as EnrollmentGradeSummary.letterGrade
+INSERT INTO `enrollment_grade_summary` (`enrollment_id`, `score_total`, `score_count`, `letter_grade`)
+SELECT t.`enrollment_id`, t.`score_total`, t.`score_count`,
+  CASE WHEN t.`score_count` = 0 THEN 'F'
+       WHEN t.`score_total` / t.`score_count` >= 90 THEN 'A'
+       WHEN t.`score_total` / t.`score_count` >= 80 THEN 'B'
+       WHEN t.`score_total` / t.`score_count` >= 70 THEN 'C'
+       WHEN t.`score_total` / t.`score_count` >= 60 THEN 'D'
+       ELSE 'F' END
+FROM (SELECT g.`enrollment_id`, COALESCE(SUM(g.`score_value`), 0) AS `score_total`, COUNT(g.`score_value`) AS `score_count`
+      FROM `assignment_grade` g GROUP BY g.`enrollment_id`) t;
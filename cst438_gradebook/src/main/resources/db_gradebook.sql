@@ -1,4 +1,5 @@
 -- script to create gradebook database with sample data
+-- the tables are the V1 schema (db/migration/V1__initial_schema.sql), the later migrations are applied at startup
 create schema gradebook;
 
 use gradebook;
@@ -0,0 +1,39 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import com.cst438.domain.AssignmentGrade;
+
+/*
+ * the numeric score kept in score_value decimal(6,2)
+ */
+public class AssignmentGradeTest {
+
+	@Test
+	public void parseScore() {
+		assertEquals(new BigDecimal("85"), AssignmentGrade.parseScore(" 85 "));
+		assertEquals(new BigDecimal("85.5"), AssignmentGrade.parseScore("85.5"));
+		assertEquals(new BigDecimal("9999.99"), AssignmentGrade.parseScore("9999.99"));
+		assertEquals(0, new BigDecimal("100").compareTo(AssignmentGrade.parseScore("1e2")));
+		// trailing zeros past 2 decimals still fit
+		assertEquals(0, new BigDecimal("85.5").compareTo(AssignmentGrade.parseScore("85.500")));
+
+		// blank and not a number
+		assertNull(AssignmentGrade.parseScore(null));
+		assertNull(AssignmentGrade.parseScore(" "));
+		assertNull(AssignmentGrade.parseScore("A-"));
+
+		// does not fit decimal(6,2)
+		assertNull(AssignmentGrade.parseScore("10000"));
+		assertNull(AssignmentGrade.parseScore("12345"));
+		assertNull(AssignmentGrade.parseScore("-10000"));
+		assertNull(AssignmentGrade.parseScore("1e9"));
+		assertNull(AssignmentGrade.parseScore("85.555"));
+	}
+
+}
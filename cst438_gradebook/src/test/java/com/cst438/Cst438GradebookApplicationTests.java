@@ -21,6 +21,8 @@ import static org.mockito.Mockito.verify;
 
 import java.sql.Date;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 
 import com.cst438.controllers.GradeBookController;
@@ -31,8 +33,16 @@ import com.cst438.domain.AssignmentGradeRepository;
 import com.cst438.domain.AssignmentRepository;
 import com.cst438.domain.Course;
 import com.cst438.domain.CourseRepository;
+import com.cst438.domain.CourseSummary;
 import com.cst438.domain.Enrollment;
+import com.cst438.domain.EnrollmentGradeSummaryRepository;
+import com.cst438.domain.EnrollmentRepository;
 import com.cst438.domain.GradebookDTO;
+import com.cst438.services.AssignmentOwnershipCache;
+import com.cst438.services.FinalGradeJobService;
+import com.cst438.services.FinalGradeOutboxService;
+import com.cst438.services.FinalGradeService;
+import com.cst438.services.GradeWriteService;
 import com.cst438.services.RegistrationService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -51,7 +61,8 @@ import org.springframework.test.context.ContextConfiguration;
  *  addFilters=false turns off security.  (I could not get security to work in test environment.)
  *  WebMvcTest is needed for test environment to create Repository classes.
  */
-@ContextConfiguration(classes = { GradeBookController.class })
+@ContextConfiguration(classes = { GradeBookController.class, AssignmentOwnershipCache.class, GradeWriteService.class,
+		FinalGradeService.class })
 @AutoConfigureMockMvc(addFilters = false)
 @WebMvcTest
 public class Cst438GradebookApplicationTests {
@@ -77,9 +88,21 @@ public class Cst438GradebookApplicationTests {
 	@MockBean
 	CourseRepository courseRepository; // must have this to keep Spring test happy
 
+	@MockBean
+	EnrollmentRepository enrollmentRepository;
+
+	@MockBean
+	EnrollmentGradeSummaryRepository enrollmentGradeSummaryRepository;
+
 	@MockBean
 	RegistrationService registrationService; // must have this to keep Spring test happy
 
+	@MockBean
+	FinalGradeOutboxService finalGradeOutboxService;
+
+	@MockBean
+	FinalGradeJobService finalGradeJobService;
+
 	@Autowired
 	private MockMvc mvc;
 
@@ -195,8 +218,9 @@ public class Cst438GradebookApplicationTests {
 		assignment.setCourse(course);
 		
 		assignment.setId(TEST_ASSIGNMENT_ID);
+		assignment.setAssignmentGrades(new java.util.ArrayList<AssignmentGrade>());
 		
-		given(assignmentRepository.findById(TEST_ASSIGNMENT_ID)).willReturn(Optional.of(assignment));
+		given(assignmentRepository.findWithGradesById(TEST_ASSIGNMENT_ID)).willReturn(Optional.of(assignment));
 
 		response = mvc.perform(MockMvcRequestBuilders.delete("/deleteAssignment/100").accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
 		assertEquals(200,response.getStatus());
@@ -240,10 +264,11 @@ public class Cst438GradebookApplicationTests {
 		ag.setId(1);
 		ag.setScore("80");
 		ag.setStudentEnrollment(enrollment);
+		assignment.setAssignmentGrades(new java.util.ArrayList<AssignmentGrade>());
+		assignment.getAssignmentGrades().add(ag);
 		
-		given(assignmentGradeRepository.findByAssignmentIdAndStudentEmail(TEST_ASSIGNMENT_ID, TEST_STUDENT_EMAIL)).willReturn(ag);
-		
-		given(assignmentRepository.findById(TEST_ASSIGNMENT_ID)).willReturn(Optional.of(assignment));
+		// the assignment is loaded together with its grade rows
+		given(assignmentRepository.findWithGradesById(TEST_ASSIGNMENT_ID)).willReturn(Optional.of(assignment));
 
 		//http delete request using the id of the assignment I created
 		response = mvc.perform(MockMvcRequestBuilders.delete("/deleteAssignment/100").accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
@@ -255,6 +280,29 @@ public class Cst438GradebookApplicationTests {
 	
 
 
+	@Test
+	public void getCoursesForInstructor() throws Exception {
+		MockHttpServletResponse response;
+
+		CourseSummary summary = new CourseSummary() {
+			public String getTitle() { return "cst363-database"; }
+			public int getCourseId() { return TEST_COURSE_ID; }
+		};
+		given(courseRepository.findSummariesByInstructor(TEST_INSTRUCTOR_EMAIL)).willReturn(Collections.singletonList(summary));
+
+		response = mvc.perform(MockMvcRequestBuilders.get("/getCourses").param("email", TEST_INSTRUCTOR_EMAIL)
+				.accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+		assertEquals(200, response.getStatus());
+
+		@SuppressWarnings("unchecked")
+		Map<String, Integer> result = fromJsonString(response.getContentAsString(), Map.class);
+		assertEquals(1, result.size());
+		assertEquals(TEST_COURSE_ID, result.get("cst363-database"));
+
+		// the instructor's courses are found by the indexed query, not by reading every course
+		verify(courseRepository, times(0)).findAll();
+	}
+
 	private static String asJsonString(final Object obj) {
 		try {
 
@@ -0,0 +1,49 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import com.cst438.domain.EnrollmentGradeSummary;
+
+/*
+ * the summary row of a student made from the score total and count
+ */
+public class EnrollmentGradeSummaryTest {
+
+	@Test
+	public void summaryFromTotals() {
+		EnrollmentGradeSummary s = new EnrollmentGradeSummary(7, new BigDecimal("255.50"), 3);
+		assertEquals(7, s.getEnrollmentId());
+		assertEquals(new BigDecimal("255.50"), s.getScoreTotal());
+		assertEquals(3, s.getScoreCount());
+		assertEquals("B", s.getLetterGrade());
+	}
+
+	@Test
+	public void noScores() {
+		// the sum of no scores is null in SQL, it is kept as 0
+		EnrollmentGradeSummary s = new EnrollmentGradeSummary(7, null, 0);
+		assertEquals(BigDecimal.ZERO, s.getScoreTotal());
+		assertEquals(0, s.getScoreCount());
+		assertEquals("F", s.getLetterGrade());
+		assertEquals(0.0, EnrollmentGradeSummary.average(null, 3));
+	}
+
+	@Test
+	public void letterGradeCutoffs() {
+		assertEquals("A", EnrollmentGradeSummary.letterGrade(100));
+		assertEquals("A", EnrollmentGradeSummary.letterGrade(90));
+		assertEquals("B", EnrollmentGradeSummary.letterGrade(89.99));
+		assertEquals("B", EnrollmentGradeSummary.letterGrade(80));
+		assertEquals("C", EnrollmentGradeSummary.letterGrade(70));
+		assertEquals("D", EnrollmentGradeSummary.letterGrade(60));
+		assertEquals("F", EnrollmentGradeSummary.letterGrade(59.99));
+		assertEquals("A", new EnrollmentGradeSummary(1, new BigDecimal("180"), 2).getLetterGrade());
+		assertEquals("D", new EnrollmentGradeSummary(1, new BigDecimal("180.00"), 3).getLetterGrade());
+		assertEquals("F", new EnrollmentGradeSummary(1, new BigDecimal("179.97"), 3).getLetterGrade());
+	}
+
+}
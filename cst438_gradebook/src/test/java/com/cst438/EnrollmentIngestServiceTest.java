@@ -0,0 +1,100 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cst438.domain.AssignmentRepository;
+import com.cst438.domain.Course;
+import com.cst438.domain.CourseRepository;
+import com.cst438.domain.EnrollmentDTO;
+import com.cst438.domain.EnrollmentRepository;
+import com.cst438.services.EnrollmentIngestService;
+
+@ExtendWith(MockitoExtension.class)
+public class EnrollmentIngestServiceTest {
+
+	@Mock
+	CourseRepository courseRepository;
+
+	@Mock
+	EnrollmentRepository enrollmentRepository;
+
+	@Mock
+	AssignmentRepository assignmentRepository;
+
+	EnrollmentIngestService enrollmentIngestService;
+
+	@BeforeEach
+	public void setup() {
+		enrollmentIngestService = new EnrollmentIngestService(1000, 3600);
+		ReflectionTestUtils.setField(enrollmentIngestService, "courseRepository", courseRepository);
+		ReflectionTestUtils.setField(enrollmentIngestService, "enrollmentRepository", enrollmentRepository);
+		ReflectionTestUtils.setField(enrollmentIngestService, "assignmentRepository", assignmentRepository);
+
+		Course course = new Course();
+		course.setCourse_id(1);
+		given(courseRepository.findAllById(anyCollection())).willReturn(Collections.singletonList(course));
+	}
+
+	@Test
+	public void studentAlreadyInDatabaseIsDuplicate() {
+		EnrollmentDTO existing = new EnrollmentDTO("Old@csumb.edu", "old", 1);
+		EnrollmentDTO fresh = new EnrollmentDTO("new@csumb.edu", "new", 1);
+		given(enrollmentRepository.findExistingEnrollments(anyCollection(), anyCollection()))
+				.willReturn(Collections.singletonList(new Object[] { 1, "old@csumb.edu" }));
+
+		List<String> status = enrollmentIngestService.enrollAll(Arrays.asList(existing, fresh));
+
+		assertEquals(Arrays.asList(EnrollmentIngestService.DUPLICATE, EnrollmentIngestService.ACCEPTED), status);
+		// only the new student is inserted
+		verify(enrollmentRepository).upsertEnrollments(Collections.singletonList(fresh));
+	}
+
+	@Test
+	public void unknownCourseMissingEmailAndRepeats() {
+		EnrollmentDTO first = new EnrollmentDTO("a@csumb.edu", "a", 1);
+		EnrollmentDTO repeat = new EnrollmentDTO("A@csumb.edu", "a", 1);
+		EnrollmentDTO unknownCourse = new EnrollmentDTO("b@csumb.edu", "b", 2);
+		EnrollmentDTO noEmail = new EnrollmentDTO(null, "c", 1);
+		given(enrollmentRepository.findExistingEnrollments(anyCollection(), anyCollection()))
+				.willReturn(Collections.emptyList());
+
+		List<String> status = enrollmentIngestService.enrollAll(Arrays.asList(first, repeat, unknownCourse, noEmail));
+
+		assertEquals(Arrays.asList(EnrollmentIngestService.ACCEPTED, EnrollmentIngestService.DUPLICATE,
+				EnrollmentIngestService.UNKNOWN_COURSE, EnrollmentIngestService.MISSING_EMAIL), status);
+		verify(enrollmentRepository).upsertEnrollments(Collections.singletonList(first));
+
+		// the second batch knows the student from the window, without asking the database
+		status = enrollmentIngestService.enrollAll(Collections.singletonList(repeat));
+		assertEquals(Collections.singletonList(EnrollmentIngestService.DUPLICATE), status);
+		verify(enrollmentRepository).upsertEnrollments(Collections.emptyList());
+	}
+
+	@Test
+	public void noLookupWhenNothingIsLeft() {
+		List<String> status = enrollmentIngestService.enrollAll(
+				Collections.singletonList(new EnrollmentDTO("b@csumb.edu", "b", 2)));
+
+		assertEquals(Collections.singletonList(EnrollmentIngestService.UNKNOWN_COURSE), status);
+		verify(enrollmentRepository, never()).findExistingEnrollments(anyCollection(), anyCollection());
+		verify(assignmentRepository, never()).refreshGradingStatusOfCourses(anyCollection());
+		verify(enrollmentRepository).upsertEnrollments(anyList());
+	}
+
+}
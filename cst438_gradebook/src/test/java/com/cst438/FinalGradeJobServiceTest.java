@@ -0,0 +1,244 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.cst438.domain.CourseDTOG;
+import com.cst438.domain.CourseRepository;
+import com.cst438.domain.EnrollmentRepository;
+import com.cst438.domain.FinalGradeJob;
+import com.cst438.services.FinalGradeJobService;
+import com.cst438.services.FinalGradeOutboxService;
+import com.cst438.services.FinalGradeService;
+
+/*
+ * final grade jobs run on the service's own pool with the repositories mocked; 
+ * each test waits for its job to finish.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class FinalGradeJobServiceTest {
+
+	@Mock
+	CourseRepository courseRepository;
+
+	@Mock
+	EnrollmentRepository enrollmentRepository;
+
+	@Mock
+	FinalGradeService finalGradeService;
+
+	@Mock
+	FinalGradeOutboxService finalGradeOutboxService;
+
+	FinalGradeJobService jobService;
+
+	@BeforeEach
+	public void setup() {
+		jobService = new FinalGradeJobService(4, 60);
+		ReflectionTestUtils.setField(jobService, "courseRepository", courseRepository);
+		ReflectionTestUtils.setField(jobService, "enrollmentRepository", enrollmentRepository);
+		ReflectionTestUtils.setField(jobService, "finalGradeService", finalGradeService);
+		ReflectionTestUtils.setField(jobService, "finalGradeOutboxService", finalGradeOutboxService);
+		ReflectionTestUtils.setField(jobService, "partitionSize", 2);
+		ReflectionTestUtils.setField(jobService, "batchSize", 50);
+		ReflectionTestUtils.setField(jobService, "callbackOrigins", Arrays.asList("https://registrar.csumb.edu", "http://localhost:8080"));
+	}
+
+	@AfterEach
+	public void shutdown() {
+		jobService.shutdown();
+	}
+
+	@Test
+	public void partsOfALargeCourseAreQueuedAsOneCourse() throws Exception {
+		// 5 students in parts of 2: enrollment ids 1-2, 3-4 and 5
+		given(enrollmentRepository.countByCourseId(7)).willReturn(5L);
+		given(enrollmentRepository.findIdsByCourse(7)).willReturn(Arrays.asList(1, 2, 3, 4, 5));
+		given(finalGradeService.computeFinalGrades(eq(7), anyInt(), anyInt())).willAnswer(invocation -> {
+			int from = invocation.getArgument(1);
+			int to = invocation.getArgument(2);
+			return course(7, from, to);
+		});
+
+		FinalGradeJob job = waitFor(jobService.startCourse(7, null));
+
+		assertEquals(FinalGradeJob.COMPLETED, job.status);
+		assertEquals(3, job.partsTotal.get());
+		assertEquals(3, job.partsDone.get());
+		assertEquals(1, job.coursesDone.get());
+		assertEquals(0, job.coursesFailed.get());
+
+		// one outbox row with every student, not one per part
+		List<CourseDTOG> queued = queued();
+		assertEquals(1, queued.size());
+		assertEquals(7, queued.get(0).course_id);
+		assertEquals(Arrays.asList("s1", "s2", "s3", "s4", "s5"), emails(queued.get(0)));
+	}
+
+	@Test
+	public void failedPartFailsTheCourse() throws Exception {
+		given(enrollmentRepository.countByCourseId(7)).willReturn(4L);
+		given(enrollmentRepository.findIdsByCourse(7)).willReturn(Arrays.asList(1, 2, 3, 4));
+		given(finalGradeService.computeFinalGrades(7, 1, 2)).willReturn(course(7, 1, 2));
+		given(finalGradeService.computeFinalGrades(7, 3, 4)).willThrow(new IllegalStateException("database down"));
+
+		FinalGradeJob job = waitFor(jobService.startCourse(7, null));
+
+		// nothing is sent for the course, the registration service keeps its old grades
+		assertEquals(FinalGradeJob.FAILED, job.status);
+		assertEquals(0, job.coursesDone.get());
+		assertEquals(1, job.coursesFailed.get());
+		assertEquals(2, job.partsTotal.get());
+		assertEquals(1, job.partsDone.get());
+		assertTrue(job.errors.get(0).contains("database down"));
+		verify(finalGradeOutboxService, never()).enqueueAll(anyList());
+	}
+
+	@Test
+	public void coursesAreDoneWhenQueued() throws Exception {
+		ReflectionTestUtils.setField(jobService, "batchSize", 2);
+		given(courseRepository.findIdsByTerm(2021, "Fall")).willReturn(Arrays.asList(1, 2, 3));
+		given(enrollmentRepository.countByCourseId(anyInt())).willReturn(1L);
+		given(finalGradeService.computeFinalGrades(anyInt())).willAnswer(invocation -> course(invocation.getArgument(0), 1, 1));
+
+		FinalGradeJob job = waitFor(jobService.startTerm(2021, "Fall"));
+
+		assertEquals(FinalGradeJob.COMPLETED, job.status);
+		assertEquals(3, job.coursesTotal.get());
+		assertEquals(3, job.coursesDone.get());
+		assertEquals(0, job.coursesFailed.get());
+	}
+
+	@Test
+	public void failedOutboxWriteIsNotDone() throws Exception {
+		given(courseRepository.findIdsByTerm(2021, "Fall")).willReturn(Arrays.asList(1, 2));
+		given(enrollmentRepository.countByCourseId(anyInt())).willReturn(1L);
+		given(finalGradeService.computeFinalGrades(anyInt())).willAnswer(invocation -> course(invocation.getArgument(0), 1, 1));
+		willThrow(new IllegalStateException("outbox write failed")).given(finalGradeOutboxService).enqueueAll(anyList());
+
+		FinalGradeJob job = waitFor(jobService.startTerm(2021, "Fall"));
+
+		// computed, but not queued: each course counts as failed only
+		assertEquals(FinalGradeJob.FAILED, job.status);
+		assertEquals(2, job.partsDone.get());
+		assertEquals(0, job.coursesDone.get());
+		assertEquals(2, job.coursesFailed.get());
+	}
+
+	@Test
+	public void callbackMustBeAnAllowedOrigin() {
+		assertTrue(callbackAllowed("https://registrar.csumb.edu/final-grades/done"));
+		assertTrue(callbackAllowed("https://REGISTRAR.csumb.edu:443/done"));
+		assertTrue(callbackAllowed("http://localhost:8080/jobs?id=1"));
+
+		// the text starts with an allowed origin, but the host or port is another
+		assertFalse(callbackAllowed("https://registrar.csumb.edu.evil.com/done"));
+		assertFalse(callbackAllowed("https://registrar.csumb.edu@evil.com/done"));
+		assertFalse(callbackAllowed("http://localhost:80801/done"));
+		assertFalse(callbackAllowed("https://registrar.csumb.edu:8443/done"));
+		assertFalse(callbackAllowed("http://registrar.csumb.edu/done"));
+		assertFalse(callbackAllowed("/done"));
+		assertFalse(callbackAllowed("http://localhost:8080 /done"));
+
+		ResponseStatusException e = assertThrows(ResponseStatusException.class,
+				() -> jobService.startCourse(7, "https://registrar.csumb.edu.evil.com/done"));
+		assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+		verify(enrollmentRepository, never()).countByCourseId(anyInt());
+	}
+
+	@Test
+	public void rejectedCourseIsNotLeftRunning() {
+		jobService.shutdown();
+
+		ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> jobService.startCourse(7, null));
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+
+		// the job finished as failed and the course can be started again
+		Map<?, ?> runningCourses = (Map<?, ?>) ReflectionTestUtils.getField(jobService, "runningCourses");
+		assertTrue(runningCourses.isEmpty());
+		assertThrows(ResponseStatusException.class, () -> jobService.startCourse(7, null));
+	}
+
+	@Test
+	public void rejectedTermCoursesFail() {
+		given(courseRepository.findIdsByTerm(2021, "Fall")).willReturn(Arrays.asList(1, 2));
+		jobService.shutdown();
+
+		FinalGradeJob job = jobService.startTerm(2021, "Fall");
+
+		assertEquals(FinalGradeJob.FAILED, job.status);
+		assertEquals(2, job.coursesFailed.get());
+		assertEquals(0, job.coursesDone.get());
+	}
+
+	private boolean callbackAllowed(String url) {
+		return ReflectionTestUtils.invokeMethod(jobService, "callbackAllowed", url);
+	}
+
+	private FinalGradeJob waitFor(FinalGradeJob job) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (FinalGradeJob.RUNNING.equals(job.status) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(job, jobService.getJob(job.id));
+		return job;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<CourseDTOG> queued() {
+		ArgumentCaptor<List<CourseDTOG>> captor = ArgumentCaptor.forClass(List.class);
+		verify(finalGradeOutboxService).enqueueAll(captor.capture());
+		return captor.getValue();
+	}
+
+	// a student s<id> for every enrollment id from fromId to toId
+	private static CourseDTOG course(int courseId, int fromId, int toId) {
+		CourseDTOG cdto = new CourseDTOG();
+		cdto.course_id = courseId;
+		cdto.grades = new ArrayList<>();
+		for (int id = fromId; id <= toId; id++) {
+			CourseDTOG.GradeDTO grade = new CourseDTOG.GradeDTO();
+			grade.student_email = "s" + id;
+			grade.grade = "A";
+			cdto.grades.add(grade);
+		}
+		return cdto;
+	}
+
+	private static List<String> emails(CourseDTOG cdto) {
+		List<String> emails = new ArrayList<>();
+		for (CourseDTOG.GradeDTO grade : cdto.grades) {
+			emails.add(grade.student_email);
+		}
+		return emails;
+	}
+
+}
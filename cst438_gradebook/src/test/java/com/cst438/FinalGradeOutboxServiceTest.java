@@ -0,0 +1,120 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cst438.domain.CourseDTOG;
+import com.cst438.domain.FinalGradeOutbox;
+import com.cst438.domain.FinalGradeOutboxRepository;
+import com.cst438.services.FinalGradeOutboxService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * rows of a course are never sent out of order: an older row is superseded 
+ * by a newer one instead of being sent or retried after it.
+ */
+@ExtendWith(MockitoExtension.class)
+public class FinalGradeOutboxServiceTest {
+
+	@Mock
+	FinalGradeOutboxRepository finalGradeOutboxRepository;
+
+	@Mock
+	ObjectMapper objectMapper;
+
+	@InjectMocks
+	FinalGradeOutboxService outboxService;
+
+	@BeforeEach
+	public void setup() {
+		ReflectionTestUtils.setField(outboxService, "maxAttempts", 10);
+		ReflectionTestUtils.setField(outboxService, "backoffMs", 1000L);
+		ReflectionTestUtils.setField(outboxService, "maxBackoffMs", 300000L);
+	}
+
+	@Test
+	public void enqueueSupersedesPendingRows() throws Exception {
+		CourseDTOG cdto = new CourseDTOG();
+		cdto.course_id = 1;
+		given(objectMapper.writeValueAsString(cdto)).willReturn("{}");
+
+		outboxService.enqueue(cdto);
+
+		InOrder order = inOrder(finalGradeOutboxRepository);
+		order.verify(finalGradeOutboxRepository).supersedePending(1);
+		order.verify(finalGradeOutboxRepository).save(any(FinalGradeOutbox.class));
+	}
+
+	@Test
+	public void claimDue() {
+		FinalGradeOutbox older = row(10, 1, FinalGradeOutbox.PENDING, 0);	// course 1 has newer row 11
+		FinalGradeOutbox newer = row(11, 1, FinalGradeOutbox.PENDING, 0);
+		FinalGradeOutbox waiting = row(20, 2, FinalGradeOutbox.PENDING, 0);	// course 2 has a row being sent
+		FinalGradeOutbox other = row(30, 3, FinalGradeOutbox.PENDING, 0);
+		given(finalGradeOutboxRepository.lockDue(any(), anyInt())).willReturn(Arrays.asList(older, newer, waiting, other));
+		given(finalGradeOutboxRepository.findNewestIds(any())).willReturn(Arrays.asList(
+				new Object[] { 1, 11L }, new Object[] { 2, 20L }, new Object[] { 3, 30L }));
+		given(finalGradeOutboxRepository.findCoursesBeingSent(any(), any())).willReturn(Collections.singletonList(2));
+
+		List<FinalGradeOutbox> claimed = outboxService.claimDue(10, 60000);
+
+		assertEquals(Arrays.asList(newer, other), claimed);
+		assertEquals(FinalGradeOutbox.SUPERSEDED, older.getStatus());
+		assertEquals(FinalGradeOutbox.SENDING, newer.getStatus());
+		assertEquals(1, newer.getAttempts());
+		assertEquals(FinalGradeOutbox.PENDING, waiting.getStatus());
+		assertEquals(0, waiting.getAttempts());
+	}
+
+	@Test
+	public void markFailed() {
+		FinalGradeOutbox replaced = row(10, 1, FinalGradeOutbox.SENDING, 1);	// course 1 has newer row 11
+		FinalGradeOutbox retried = row(20, 2, FinalGradeOutbox.SENDING, 1);
+		FinalGradeOutbox exhausted = row(30, 3, FinalGradeOutbox.SENDING, 10);
+		given(finalGradeOutboxRepository.findAllById(any())).willReturn(Arrays.asList(replaced, retried, exhausted));
+		given(finalGradeOutboxRepository.findNewestIds(any())).willReturn(Arrays.asList(
+				new Object[] { 1, 11L }, new Object[] { 2, 20L }, new Object[] { 3, 30L }));
+
+		outboxService.markFailed(Arrays.asList(10L, 20L, 30L), "down");
+
+		assertEquals(FinalGradeOutbox.SUPERSEDED, replaced.getStatus());
+		assertEquals(FinalGradeOutbox.PENDING, retried.getStatus());
+		assertEquals(FinalGradeOutbox.FAILED, exhausted.getStatus());
+	}
+
+	@Test
+	public void markUnreadableIsNotRetried() {
+		FinalGradeOutbox row = row(10, 1, FinalGradeOutbox.SENDING, 1);
+		given(finalGradeOutboxRepository.findAllById(any())).willReturn(Collections.singletonList(row));
+
+		outboxService.markUnreadable(Collections.singletonList(10L), "payload could not be read");
+
+		assertEquals(FinalGradeOutbox.FAILED, row.getStatus());
+		assertEquals("payload could not be read", row.getLastError());
+	}
+
+	private static FinalGradeOutbox row(long id, int courseId, String status, int attempts) {
+		FinalGradeOutbox row = new FinalGradeOutbox(courseId, "{}");
+		row.setId(id);
+		row.setStatus(status);
+		row.setAttempts(attempts);
+		return row;
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cst438.domain.EnrollmentRepository;
+import com.cst438.domain.GradeExportRow;
+import com.cst438.services.GradeExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ExtendWith(MockitoExtension.class)
+public class GradeExportServiceTest {
+
+	@Mock
+	EnrollmentRepository enrollmentRepository;
+
+	@InjectMocks
+	GradeExportService gradeExportService;
+
+	AtomicBoolean closed = new AtomicBoolean();
+
+	@BeforeEach
+	public void setup() {
+		ReflectionTestUtils.setField(gradeExportService, "objectMapper", new ObjectMapper());
+	}
+
+	@Test
+	public void courseAsCsv() throws Exception {
+		given(enrollmentRepository.streamCourseGrades(1)).willReturn(rows(
+				new GradeExportRow(10, "a@csumb.edu", "Smith, Ann", 5, "hw 1", "90"),
+				new GradeExportRow(10, "a@csumb.edu", "Smith, Ann", 6, "say \"hi\"", null)));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		gradeExportService.writeCourse(1, GradeExportService.CSV, out);
+
+		// fields with a separator or a quote are quoted, a missing score is empty
+		assertEquals("student_email,student_name,assignment_id,assignment_name,score\n"
+				+ "a@csumb.edu,\"Smith, Ann\",5,hw 1,90\n"
+				+ "a@csumb.edu,\"Smith, Ann\",6,\"say \"\"hi\"\"\",\n", out.toString(StandardCharsets.UTF_8.name()));
+		assertTrue(closed.get());
+	}
+
+	@Test
+	public void formulasAreExportedAsText() throws Exception {
+		given(enrollmentRepository.streamCourseGrades(1)).willReturn(rows(
+				new GradeExportRow(10, "a@csumb.edu", "=HYPERLINK(\"http://x\")", 5, "@sum", "-5"),
+				new GradeExportRow(10, "a@csumb.edu", "Ann", 6, "+1,2", "A-")));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		gradeExportService.writeCourse(1, GradeExportService.CSV, out);
+
+		// a value a spreadsheet would run as a formula starts with ', a letter grade is left alone
+		assertEquals("student_email,student_name,assignment_id,assignment_name,score\n"
+				+ "a@csumb.edu,\"'=HYPERLINK(\"\"http://x\"\")\",5,'@sum,'-5\n"
+				+ "a@csumb.edu,Ann,6,\"'+1,2\",A-\n", out.toString(StandardCharsets.UTF_8.name()));
+	}
+
+	@Test
+	public void assignmentAsNdjson() throws Exception {
+		given(enrollmentRepository.streamAssignmentGrades(5)).willReturn(rows(
+				new GradeExportRow(10, "a@csumb.edu", "Ann", 5, "hw 1", "90"),
+				new GradeExportRow(11, "b@csumb.edu", "Bob", 5, "hw 1", null)));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		gradeExportService.writeAssignment(5, GradeExportService.NDJSON, out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+		assertEquals(2, lines.length);
+		ObjectMapper mapper = new ObjectMapper();
+		assertEquals("b@csumb.edu", mapper.readTree(lines[1]).get("studentEmail").asText());
+		assertTrue(mapper.readTree(lines[1]).get("score").isNull());
+		assertEquals(10, mapper.readTree(lines[0]).get("enrollmentId").asInt());
+		assertTrue(closed.get());
+	}
+
+	@Test
+	public void emptyCourseIsHeaderOnly() throws Exception {
+		given(enrollmentRepository.streamCourseGrades(1)).willReturn(rows());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		gradeExportService.writeCourse(1, GradeExportService.CSV, out);
+
+		assertEquals("student_email,student_name,assignment_id,assignment_name,score\n", out.toString(StandardCharsets.UTF_8.name()));
+		assertTrue(closed.get());
+	}
+
+	// the database stream must be closed so the connection can run other statements
+	private Stream<GradeExportRow> rows(GradeExportRow... rows) {
+		return Stream.of(rows).onClose(() -> closed.set(true));
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cst438.domain.AssignmentGradeRepository;
+import com.cst438.domain.AssignmentRepository;
+import com.cst438.domain.EnrollmentGradeSummaryRepository;
+import com.cst438.domain.EnrollmentRepository;
+import com.cst438.domain.GradeImportResultDTO;
+import com.cst438.services.GradeImportService;
+import com.cst438.services.GradeWriteService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * CSV import with the repositories mocked.  the GradeWriteService is real, so 
+ * the test sees which scores are inserted and which are cleared.
+ */
+@ExtendWith(MockitoExtension.class)
+public class GradeImportServiceTest {
+
+	public static final int TEST_COURSE_ID = 40442;
+
+	@Mock
+	EnrollmentRepository enrollmentRepository;
+
+	@Mock
+	AssignmentRepository assignmentRepository;
+
+	@Mock
+	AssignmentGradeRepository assignmentGradeRepository;
+
+	@Mock
+	EnrollmentGradeSummaryRepository enrollmentGradeSummaryRepository;
+
+	GradeImportService gradeImportService;
+
+	ObjectMapper objectMapper = new ObjectMapper();
+
+	@BeforeEach
+	public void setup() {
+		GradeWriteService gradeWriteService = new GradeWriteService();
+		ReflectionTestUtils.setField(gradeWriteService, "assignmentGradeRepository", assignmentGradeRepository);
+		ReflectionTestUtils.setField(gradeWriteService, "assignmentRepository", assignmentRepository);
+		ReflectionTestUtils.setField(gradeWriteService, "enrollmentRepository", enrollmentRepository);
+		ReflectionTestUtils.setField(gradeWriteService, "enrollmentGradeSummaryRepository", enrollmentGradeSummaryRepository);
+
+		gradeImportService = new GradeImportService();
+		ReflectionTestUtils.setField(gradeImportService, "enrollmentRepository", enrollmentRepository);
+		ReflectionTestUtils.setField(gradeImportService, "assignmentRepository", assignmentRepository);
+		ReflectionTestUtils.setField(gradeImportService, "gradeWriteService", gradeWriteService);
+		ReflectionTestUtils.setField(gradeImportService, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(gradeImportService, "chunkSize", 1000);
+
+		given(enrollmentRepository.findIdsAndEmailsByCourse(TEST_COURSE_ID)).willReturn(Arrays.asList(
+				new Object[] { 10, "a@csumb.edu" }, new Object[] { 11, "b@csumb.edu" }));
+		given(assignmentRepository.findIdsByCourse(TEST_COURSE_ID)).willReturn(Arrays.asList(1, 2));
+	}
+
+	@Test
+	public void blankScoreClearsWithoutInsert() throws Exception {
+		List<GradeImportResultDTO> results = importCsv("student_email,assignment_id,score\n"
+				+ "a@csumb.edu,1,90\n"
+				+ "B@csumb.edu,1,\n");
+
+		// the blank score is not inserted, it only clears a grade row that exists
+		verify(assignmentGradeRepository).upsertScores(1, Collections.singletonMap(10, "90"));
+		verify(assignmentGradeRepository).clearScores(1, Collections.singletonList(11));
+		verify(enrollmentGradeSummaryRepository).upsertSummaries(Collections.emptyList());
+		assertEquals(1, results.size());
+		assertEquals(2, results.get(0).rows);
+		assertEquals(2, results.get(0).imported);
+	}
+
+	@Test
+	public void formulaPrefixFromExportIsRemoved() throws Exception {
+		List<GradeImportResultDTO> results = importCsv("student_email,assignment_id,score\n"
+				+ "a@csumb.edu,1,'-5\n"
+				+ "b@csumb.edu,1,'ok\n");
+
+		// "'-5" is how an export writes -5; a ' in front of anything else is part of the score
+		Map<Integer, String> scores = new HashMap<>();
+		scores.put(10, "-5");
+		scores.put(11, "'ok");
+		verify(assignmentGradeRepository).upsertScores(1, scores);
+		assertEquals(2, results.get(0).imported);
+	}
+
+	@Test
+	public void invalidAndUnknownRowsAreReported() throws Exception {
+		List<GradeImportResultDTO> results = importCsv("student_email,assignment_id,score,extra\n"
+				+ "x@csumb.edu,1,90,\n"
+				+ "a@csumb.edu,3,90,\n"
+				+ "a@csumb.edu,one,90,\n"
+				+ "a@csumb.edu,1," + String.join("", Collections.nCopies(256, "9")) + ",\n"
+				+ "a@csumb.edu,1,A-,\n"
+				+ "a@csumb.edu,1\n"
+				+ "b@csumb.edu,2,75.5,\n");
+
+		assertError(results.get(0), 1, "x@csumb.edu", "student not enrolled in course");
+		assertError(results.get(1), 2, "a@csumb.edu", "assignment not in course");
+		assertError(results.get(2), 3, "a@csumb.edu", "invalid assignment_id");
+		assertError(results.get(3), 4, "a@csumb.edu", "score longer than 255 characters");
+		assertError(results.get(4), 6, "a@csumb.edu", "wrong number of columns");
+		assertEquals(6, results.size());
+		assertNull(results.get(5).error);
+		assertEquals(7, results.get(5).rows);
+		assertEquals(2, results.get(5).imported);
+
+		// a score that is not a number is saved as text, the same as PUT /gradebook
+		verify(assignmentGradeRepository).upsertScores(1, Collections.singletonMap(10, "A-"));
+		verify(assignmentGradeRepository).upsertScores(2, Collections.singletonMap(11, "75.5"));
+		verify(assignmentGradeRepository, never()).upsertScores(1, Collections.singletonMap(10, "90"));
+	}
+
+	@Test
+	public void missingColumnsImportNothing() throws Exception {
+		List<GradeImportResultDTO> results = importCsv("student_email,score\n"
+				+ "a@csumb.edu,90\n");
+
+		assertEquals(2, results.size());
+		assertEquals("header must have student_email, assignment_id and score", results.get(0).error);
+		assertEquals(0, results.get(1).imported);
+		verify(assignmentGradeRepository, never()).upsertScores(anyInt(), anyMap());
+	}
+
+	private List<GradeImportResultDTO> importCsv(String csv) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		gradeImportService.importCourse(TEST_COURSE_ID, new StringReader(csv), out);
+		List<GradeImportResultDTO> results = new ArrayList<>();
+		for (String line : out.toString(StandardCharsets.UTF_8.name()).split("\n")) {
+			results.add(objectMapper.readValue(line, GradeImportResultDTO.class));
+		}
+		return results;
+	}
+
+	private static void assertError(GradeImportResultDTO result, int row, String email, String error) {
+		assertEquals(row, result.row);
+		assertEquals(email, result.studentEmail);
+		assertEquals(error, result.error);
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.cst438;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cst438.domain.EnrollmentGradeSummaryRepository;
+import com.cst438.services.GradeSummaryChecker;
+import com.cst438.services.GradeWriteService;
+
+@ExtendWith(MockitoExtension.class)
+public class GradeSummaryCheckerTest {
+
+	@Mock
+	JdbcTemplate jdbcTemplate;
+
+	@Mock
+	EnrollmentGradeSummaryRepository enrollmentGradeSummaryRepository;
+
+	@Mock
+	GradeWriteService gradeWriteService;
+
+	@InjectMocks
+	GradeSummaryChecker checker;
+
+	@Test
+	public void driftedSummariesAreRebuilt() {
+		ReflectionTestUtils.setField(checker, "chunkSize", 100);
+		given(jdbcTemplate.queryForObject("select min(id) from enrollment", Integer.class)).willReturn(1);
+		given(jdbcTemplate.queryForObject("select max(id) from enrollment", Integer.class)).willReturn(250);
+		given(enrollmentGradeSummaryRepository.findDriftedEnrollmentIds(1, 100)).willReturn(Arrays.asList(5, 42));
+		given(enrollmentGradeSummaryRepository.findDriftedEnrollmentIds(101, 200)).willReturn(Collections.emptyList());
+		given(enrollmentGradeSummaryRepository.findDriftedEnrollmentIds(201, 300)).willReturn(Collections.singletonList(250));
+
+		checker.check();
+
+		// every range is compared, only the drifted enrollments are rebuilt, each range on its own
+		verify(gradeWriteService).refreshSummaries(Arrays.asList(5, 42));
+		verify(gradeWriteService).refreshSummaries(Collections.singletonList(250));
+		verify(gradeWriteService, never()).refreshSummaries(Collections.emptyList());
+	}
+
+	@Test
+	public void noEnrollments() {
+		given(jdbcTemplate.queryForObject("select min(id) from enrollment", Integer.class)).willReturn(null);
+
+		checker.check();
+
+		verify(enrollmentGradeSummaryRepository, never()).findDriftedEnrollmentIds(anyInt(), eq(0));
+		verify(gradeWriteService, never()).refreshSummaries(anyCollection());
+	}
+
+}
@@ -0,0 +1,154 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.cst438.domain.AssignmentGrade;
+import com.cst438.domain.AssignmentGradeRepository;
+import com.cst438.domain.AssignmentRepository;
+import com.cst438.domain.Enrollment;
+import com.cst438.domain.EnrollmentGradeSummary;
+import com.cst438.domain.EnrollmentGradeSummaryRepository;
+import com.cst438.domain.EnrollmentRepository;
+import com.cst438.services.GradeWriteService;
+
+@ExtendWith(MockitoExtension.class)
+public class GradeWriteServiceTest {
+
+	@Mock
+	AssignmentGradeRepository assignmentGradeRepository;
+
+	@Mock
+	AssignmentRepository assignmentRepository;
+
+	@Mock
+	EnrollmentRepository enrollmentRepository;
+
+	@Mock
+	EnrollmentGradeSummaryRepository enrollmentGradeSummaryRepository;
+
+	@InjectMocks
+	GradeWriteService gradeWriteService;
+
+	@Test
+	public void gradebookLocksChangedAndNewStudentsOnce() {
+		Enrollment enrollment = new Enrollment();
+		enrollment.setId(12);
+		AssignmentGrade changed = new AssignmentGrade();
+		changed.setId(5);
+		changed.setStudentEnrollment(enrollment);
+		changed.setScore("88");
+		Map<Integer, String> scores = new HashMap<>();
+		scores.put(10, "95");
+		scores.put(11, "70");
+		// the native query returns the count as a BigInteger
+		given(enrollmentRepository.sumScoresByIds(anyCollection())).willReturn(Arrays.asList(
+				new Object[] { 10, new BigDecimal("185.00"), BigInteger.valueOf(2) },
+				new Object[] { 11, new BigDecimal("70.00"), BigInteger.valueOf(1) },
+				new Object[] { 12, new BigDecimal("88.00"), BigInteger.valueOf(1) }));
+
+		gradeWriteService.saveGradebook(1, Collections.singletonList(changed), scores);
+
+		// another transaction writing the same students waits at the lock, so its sums include these scores.
+		// changed and new scores are locked in one call, two updates never wait on each other's second lock
+		Set<Integer> students = new HashSet<>(Arrays.asList(10, 11, 12));
+		InOrder order = inOrder(enrollmentGradeSummaryRepository, assignmentGradeRepository, enrollmentRepository);
+		order.verify(enrollmentGradeSummaryRepository).lockSummaries(students);
+		order.verify(assignmentGradeRepository).saveAll(Collections.singletonList(changed));
+		order.verify(assignmentGradeRepository).upsertScores(1, scores);
+		order.verify(enrollmentRepository).sumScoresByIds(students);
+		order.verify(enrollmentGradeSummaryRepository).upsertSummaries(anyList());
+		verify(enrollmentGradeSummaryRepository).lockSummaries(anyCollection());
+		verify(assignmentRepository).refreshGradingStatus(Collections.singleton(1));
+
+		List<EnrollmentGradeSummary> summaries = upsertedSummaries();
+		assertEquals(3, summaries.size());
+		assertSummary(summaries.get(0), 10, "185.00", 2, "A");
+		assertSummary(summaries.get(1), 11, "70.00", 1, "C");
+	}
+
+	@Test
+	public void importLocksEveryStudentOnce() {
+		Map<Integer, Map<Integer, String>> scores = new HashMap<>();
+		scores.put(1, Collections.singletonMap(10, "95"));
+		scores.put(2, Collections.singletonMap(11, "50"));
+		given(enrollmentRepository.sumScoresByIds(anyCollection())).willReturn(Arrays.asList(
+				new Object[] { 10, new BigDecimal("95.00"), BigInteger.valueOf(1) },
+				new Object[] { 11, new BigDecimal("50.00"), BigInteger.valueOf(1) }));
+
+		gradeWriteService.upsertScores(scores);
+
+		InOrder order = inOrder(enrollmentGradeSummaryRepository, assignmentGradeRepository);
+		order.verify(enrollmentGradeSummaryRepository).lockSummaries(new HashSet<>(Arrays.asList(10, 11)));
+		order.verify(assignmentGradeRepository).upsertScores(1, Collections.singletonMap(10, "95"));
+		verify(assignmentGradeRepository).upsertScores(2, Collections.singletonMap(11, "50"));
+		verify(assignmentRepository).refreshGradingStatus(scores.keySet());
+		assertSummary(upsertedSummaries().get(1), 11, "50.00", 1, "F");
+	}
+
+	@Test
+	public void refreshRepairsFromScores() {
+		// a student whose scores were all removed: the sum is null
+		given(enrollmentRepository.sumScoresByIds(Arrays.asList(12))).willReturn(
+				Collections.singletonList(new Object[] { 12, null, BigInteger.ZERO }));
+
+		gradeWriteService.refreshSummaries(Arrays.asList(12));
+
+		InOrder order = inOrder(enrollmentGradeSummaryRepository, enrollmentRepository);
+		order.verify(enrollmentGradeSummaryRepository).lockSummaries(Arrays.asList(12));
+		order.verify(enrollmentRepository).sumScoresByIds(Arrays.asList(12));
+		List<EnrollmentGradeSummary> summaries = upsertedSummaries();
+		assertEquals(1, summaries.size());
+		assertEquals(BigDecimal.ZERO, summaries.get(0).getScoreTotal());
+		assertEquals(0, summaries.get(0).getScoreCount());
+		assertEquals("F", summaries.get(0).getLetterGrade());
+	}
+
+	@Test
+	public void nothingToWrite() {
+		gradeWriteService.upsertScores(Collections.emptyMap());
+		gradeWriteService.saveGradebook(1, Collections.emptyList(), Collections.emptyMap());
+		gradeWriteService.refreshSummaries(Collections.emptyList());
+
+		verify(enrollmentGradeSummaryRepository, never()).lockSummaries(anyCollection());
+		verify(enrollmentRepository, never()).sumScoresByIds(anyCollection());
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<EnrollmentGradeSummary> upsertedSummaries() {
+		ArgumentCaptor<List<EnrollmentGradeSummary>> captor = ArgumentCaptor.forClass(List.class);
+		verify(enrollmentGradeSummaryRepository).upsertSummaries(captor.capture());
+		return captor.getValue();
+	}
+
+	private static void assertSummary(EnrollmentGradeSummary s, int enrollmentId, String total, int count, String letter) {
+		assertEquals(enrollmentId, s.getEnrollmentId());
+		assertEquals(new BigDecimal(total), s.getScoreTotal());
+		assertEquals(count, s.getScoreCount());
+		assertEquals(letter, s.getLetterGrade());
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.cst438;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.orm.jpa.HibernateMetricsAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * the second level cache statistics are published on /actuator/metrics.  
+ * spring boot binds them only when hibernate-micrometer is on the classpath; 
+ * the session factory is mocked with one cache region.
+ */
+public class HibernateMetricsTest {
+
+	@Test
+	public void secondLevelCacheMetersAreRegistered() {
+		Statistics statistics = mock(Statistics.class);
+		given(statistics.isStatisticsEnabled()).willReturn(true);
+		given(statistics.getSecondLevelCacheRegionNames()).willReturn(new String[] { "com.cst438.domain.Course" });
+		given(statistics.getDomainDataRegionStatistics(anyString())).willReturn(mock(CacheRegionStatistics.class));
+		SessionFactory sessionFactory = mock(SessionFactory.class);
+		given(sessionFactory.getStatistics()).willReturn(statistics);
+		given(sessionFactory.getSessionFactoryOptions()).willReturn(mock(SessionFactoryOptions.class));
+		EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+		given(entityManagerFactory.unwrap(SessionFactory.class)).willReturn(sessionFactory);
+
+		new ApplicationContextRunner()
+				.withConfiguration(AutoConfigurations.of(MetricsAutoConfiguration.class,
+						SimpleMetricsExportAutoConfiguration.class, HibernateMetricsAutoConfiguration.class))
+				.withBean("entityManagerFactory", EntityManagerFactory.class, () -> entityManagerFactory)
+				.run(context -> {
+					MeterRegistry registry = context.getBean(MeterRegistry.class);
+					assertThat(registry.find("hibernate.second.level.cache.requests")
+							.tag("region", "com.cst438.domain.Course").meters()).isNotEmpty();
+				});
+	}
+
+}
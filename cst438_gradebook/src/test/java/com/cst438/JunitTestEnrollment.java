@@ -0,0 +1,133 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.cst438.controllers.EnrollmentController;
+import com.cst438.domain.EnrollmentDTO;
+import com.cst438.domain.EnrollmentResultDTO;
+import com.cst438.services.EnrollmentIngestService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * bulk enrollment endpoint with the ingest service mocked.  
+ * the chunk size is 2 so a request of a few rows is split in several chunks.
+ */
+@ContextConfiguration(classes = { EnrollmentController.class })
+@AutoConfigureMockMvc(addFilters = false)
+@WebMvcTest(properties = "gradebook.enrollment-bulk.chunk-size=2")
+public class JunitTestEnrollment {
+
+	static final String NDJSON = "application/x-ndjson";
+
+	@MockBean
+	EnrollmentIngestService enrollmentIngestService;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Test
+	public void bulkReportsStatusOfEachRow() throws Exception {
+		// the student of the second row is already in the course.  the controller reuses 
+		// its chunk list, so the chunks are copied as they are passed
+		List<List<EnrollmentDTO>> chunks = new ArrayList<>();
+		given(enrollmentIngestService.enrollAll(anyList())).willAnswer(invocation -> {
+			List<EnrollmentDTO> chunk = invocation.getArgument(0);
+			chunks.add(new ArrayList<>(chunk));
+			return chunks.size() == 1
+					? Arrays.asList(EnrollmentIngestService.ACCEPTED, EnrollmentIngestService.DUPLICATE)
+					: Arrays.asList(EnrollmentIngestService.UNKNOWN_COURSE);
+		});
+
+		String body = "{\"studentEmail\":\"a@csumb.edu\",\"studentName\":\"a\",\"course_id\":1}\n"
+				+ "{\"studentEmail\":\"b@csumb.edu\",\"studentName\":\"b\",\"course_id\":1}\n"
+				+ "{\"studentEmail\":\"c@csumb.edu\",\"studentName\":\"c\",\"course_id\":9}\n";
+		MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.post("/enrollment/bulk")
+				.contentType(NDJSON).content(body)).andReturn().getResponse();
+
+		assertEquals(200, response.getStatus());
+		assertEquals(NDJSON, response.getContentType());
+		List<EnrollmentResultDTO> results = readResults(response);
+		assertEquals(3, results.size());
+		assertResult(results.get(0), 1, "a@csumb.edu", 1, EnrollmentIngestService.ACCEPTED);
+		assertResult(results.get(1), 2, "b@csumb.edu", 1, EnrollmentIngestService.DUPLICATE);
+		assertResult(results.get(2), 3, "c@csumb.edu", 9, EnrollmentIngestService.UNKNOWN_COURSE);
+
+		// two chunks, of 2 rows and of 1 row
+		assertEquals(Arrays.asList(
+				Arrays.asList(new EnrollmentDTO("a@csumb.edu", "a", 1), new EnrollmentDTO("b@csumb.edu", "b", 1)),
+				Arrays.asList(new EnrollmentDTO("c@csumb.edu", "c", 9))), chunks);
+	}
+
+	@Test
+	public void bulkAcceptsJsonArray() throws Exception {
+		given(enrollmentIngestService.enrollAll(anyList()))
+				.willReturn(Arrays.asList(EnrollmentIngestService.ACCEPTED));
+
+		String body = "[{\"studentEmail\":\"a@csumb.edu\",\"studentName\":\"a\",\"course_id\":1}]";
+		MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.post("/enrollment/bulk")
+				.contentType("application/json").content(body)).andReturn().getResponse();
+
+		List<EnrollmentResultDTO> results = readResults(response);
+		assertEquals(1, results.size());
+		assertResult(results.get(0), 1, "a@csumb.edu", 1, EnrollmentIngestService.ACCEPTED);
+	}
+
+	@Test
+	public void bulkEndsWithInvalidRow() throws Exception {
+		given(enrollmentIngestService.enrollAll(anyList()))
+				.willReturn(Arrays.asList(EnrollmentIngestService.ACCEPTED));
+
+		// the rows before the bad one are still added
+		String body = "{\"studentEmail\":\"a@csumb.edu\",\"studentName\":\"a\",\"course_id\":1}\n"
+				+ "{\"studentEmail\":\"b@csumb.edu\",\"course_id\":\n";
+		MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.post("/enrollment/bulk")
+				.contentType(NDJSON).content(body)).andReturn().getResponse();
+
+		assertEquals(200, response.getStatus());
+		List<EnrollmentResultDTO> results = readResults(response);
+		assertEquals(2, results.size());
+		assertResult(results.get(0), 1, "a@csumb.edu", 1, EnrollmentIngestService.ACCEPTED);
+		assertEquals(2, results.get(1).row);
+		assertEquals(true, results.get(1).status.startsWith("invalid: "));
+		verify(enrollmentIngestService, times(1)).enrollAll(anyList());
+	}
+
+	private List<EnrollmentResultDTO> readResults(MockHttpServletResponse response) throws Exception {
+		List<EnrollmentResultDTO> results = new ArrayList<>();
+		for (String line : response.getContentAsString().split("\n")) {
+			if (!line.isEmpty()) {
+				results.add(objectMapper.readValue(line, EnrollmentResultDTO.class));
+			}
+		}
+		return results;
+	}
+
+	private static void assertResult(EnrollmentResultDTO result, int row, String email, int courseId, String status) {
+		assertEquals(row, result.row);
+		assertEquals(email, result.studentEmail);
+		assertEquals(courseId, result.course_id);
+		assertEquals(status, result.status);
+	}
+
+}
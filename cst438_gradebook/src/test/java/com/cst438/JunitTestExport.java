@@ -0,0 +1,126 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.cst438.controllers.GradebookExportController;
+import com.cst438.domain.Course;
+import com.cst438.domain.CourseRepository;
+import com.cst438.services.AssignmentOwnershipCache;
+import com.cst438.services.AssignmentOwnershipCache.AssignmentOwner;
+import com.cst438.services.GradeExportService;
+
+/*
+ * export endpoints with GradeExportService mocked.  the body is written after 
+ * the controller returned, so successful requests are dispatched again with 
+ * asyncDispatch to read it.
+ */
+@ContextConfiguration(classes = { GradebookExportController.class })
+@AutoConfigureMockMvc(addFilters = false)
+@WebMvcTest
+public class JunitTestExport {
+
+	public static final int TEST_COURSE_ID = 40442;
+	public static final String TEST_INSTRUCTOR_EMAIL = "dwisneski@csumb.edu";
+
+	@MockBean
+	CourseRepository courseRepository;
+
+	@MockBean
+	AssignmentOwnershipCache ownershipCache;
+
+	@MockBean
+	GradeExportService gradeExportService;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Test
+	public void exportCourse() throws Exception {
+		given(courseRepository.findById(TEST_COURSE_ID)).willReturn(Optional.of(course(TEST_INSTRUCTOR_EMAIL)));
+		willAnswer(invocation -> {
+			OutputStream out = invocation.getArgument(2);
+			out.write("student_email,student_name,assignment_id,assignment_name,score\n".getBytes(StandardCharsets.UTF_8));
+			return null;
+		}).given(gradeExportService).writeCourse(eq(TEST_COURSE_ID), eq(GradeExportService.CSV), any());
+
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/course/" + TEST_COURSE_ID + "/export")).andReturn();
+		MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andReturn().getResponse();
+
+		assertEquals(200, response.getStatus());
+		assertEquals("text/csv; charset=UTF-8", response.getHeader("Content-Type"));
+		assertEquals("attachment; filename=\"course-" + TEST_COURSE_ID + ".csv\"", response.getHeader("Content-Disposition"));
+		assertEquals("student_email,student_name,assignment_id,assignment_name,score\n", response.getContentAsString());
+	}
+
+	@Test
+	public void exportAssignmentAsNdjson() throws Exception {
+		given(ownershipCache.get(1)).willReturn(new AssignmentOwner(1, TEST_COURSE_ID, TEST_INSTRUCTOR_EMAIL, "hw 1"));
+
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/assignment/1/export?format=ndjson")).andReturn();
+		MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andReturn().getResponse();
+
+		assertEquals(200, response.getStatus());
+		assertEquals("application/x-ndjson", response.getHeader("Content-Type"));
+		assertEquals("attachment; filename=\"assignment-1.ndjson\"", response.getHeader("Content-Disposition"));
+		verify(gradeExportService).writeAssignment(eq(1), eq(GradeExportService.NDJSON), any());
+	}
+
+	@Test
+	public void exportOfOtherInstructorIsRejected() throws Exception {
+		given(courseRepository.findById(TEST_COURSE_ID)).willReturn(Optional.of(course("other@csumb.edu")));
+		given(ownershipCache.get(1)).willReturn(new AssignmentOwner(1, TEST_COURSE_ID, "other@csumb.edu", "hw 1"));
+
+		MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.get("/course/" + TEST_COURSE_ID + "/export"))
+				.andReturn().getResponse();
+		assertEquals(401, response.getStatus());
+		response = mvc.perform(MockMvcRequestBuilders.get("/assignment/1/export")).andReturn().getResponse();
+		assertEquals(401, response.getStatus());
+
+		verify(gradeExportService, never()).writeCourse(anyInt(), anyString(), any());
+		verify(gradeExportService, never()).writeAssignment(anyInt(), anyString(), any());
+	}
+
+	@Test
+	public void unknownCourseOrFormatIsBadRequest() throws Exception {
+		given(courseRepository.findById(TEST_COURSE_ID)).willReturn(Optional.of(course(TEST_INSTRUCTOR_EMAIL)));
+
+		MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.get("/course/" + TEST_COURSE_ID + "/export?format=xml"))
+				.andReturn().getResponse();
+		assertEquals(400, response.getStatus());
+		response = mvc.perform(MockMvcRequestBuilders.get("/course/1/export")).andReturn().getResponse();
+		assertEquals(400, response.getStatus());
+		response = mvc.perform(MockMvcRequestBuilders.get("/assignment/2/export")).andReturn().getResponse();
+		assertEquals(400, response.getStatus());
+	}
+
+	private static Course course(String instructor) {
+		Course course = new Course();
+		course.setCourse_id(TEST_COURSE_ID);
+		course.setInstructor(instructor);
+		return course;
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.cst438.controllers.FinalGradeJobController;
+import com.cst438.domain.Course;
+import com.cst438.domain.CourseRepository;
+import com.cst438.domain.FinalGradeJob;
+import com.cst438.services.FinalGradeJobService;
+
+/*
+ * term finalization is only for the users in gradebook.admin-emails.
+ */
+@ContextConfiguration(classes = { FinalGradeJobController.class })
+@AutoConfigureMockMvc(addFilters = false)
+@WebMvcTest(properties = "gradebook.admin-emails=dwisneski@csumb.edu")
+public class JunitTestFinalGradeJob {
+
+	public static final int TEST_COURSE_ID = 40442;
+	public static final String TEST_INSTRUCTOR_EMAIL = "dwisneski@csumb.edu";
+
+	@MockBean
+	FinalGradeJobService finalGradeJobService;
+
+	@MockBean
+	CourseRepository courseRepository;
+
+	@Autowired
+	FinalGradeJobController controller;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Test
+	public void adminFinalizesTerm() throws Exception {
+		FinalGradeJob job = new FinalGradeJob("job-1", 2021, "Fall");
+		given(finalGradeJobService.startTerm(2021, "Fall")).willReturn(job);
+
+		MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.post("/finalgrades/term/2021/Fall"))
+				.andReturn().getResponse();
+
+		assertEquals(202, response.getStatus());
+		assertEquals("/finalgrades/jobs/job-1", response.getHeader("Location"));
+	}
+
+	@Test
+	public void otherUsersCannotFinalizeTerm() throws Exception {
+		ReflectionTestUtils.setField(controller, "adminEmails", Collections.singletonList("registrar@csumb.edu"));
+		try {
+			MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.post("/finalgrades/term/2021/Fall"))
+					.andReturn().getResponse();
+
+			assertEquals(401, response.getStatus());
+			verify(finalGradeJobService, never()).startTerm(anyInt(), anyString());
+		} finally {
+			ReflectionTestUtils.setField(controller, "adminEmails", Collections.singletonList(TEST_INSTRUCTOR_EMAIL));
+		}
+	}
+
+	@Test
+	public void courseJobOnlyForInstructor() throws Exception {
+		given(finalGradeJobService.getJob("job-2")).willReturn(new FinalGradeJob("job-2", TEST_COURSE_ID));
+		Course course = new Course();
+		course.setCourse_id(TEST_COURSE_ID);
+		course.setInstructor(TEST_INSTRUCTOR_EMAIL);
+		given(courseRepository.findById(TEST_COURSE_ID)).willReturn(Optional.of(course));
+
+		MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.get("/finalgrades/jobs/job-2"))
+				.andReturn().getResponse();
+		assertEquals(200, response.getStatus());
+
+		course.setInstructor("other@csumb.edu");
+		response = mvc.perform(MockMvcRequestBuilders.get("/finalgrades/jobs/job-2")).andReturn().getResponse();
+		assertEquals(401, response.getStatus());
+
+		response = mvc.perform(MockMvcRequestBuilders.get("/finalgrades/jobs/job-3")).andReturn().getResponse();
+		assertEquals(404, response.getStatus());
+	}
+
+}
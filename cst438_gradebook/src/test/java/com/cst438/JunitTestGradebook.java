@@ -1,9 +1,16 @@
 package com.cst438;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -17,6 +24,8 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
 import com.cst438.controllers.GradeBookController;
@@ -25,9 +34,20 @@ import com.cst438.domain.AssignmentGrade;
 import com.cst438.domain.AssignmentGradeRepository;
 import com.cst438.domain.AssignmentRepository;
 import com.cst438.domain.Course;
+import com.cst438.domain.CourseDTOG;
 import com.cst438.domain.CourseRepository;
 import com.cst438.domain.Enrollment;
+import com.cst438.domain.EnrollmentGradeTotal;
+import com.cst438.domain.EnrollmentGradeSummaryRepository;
+import com.cst438.domain.EnrollmentRepository;
+import com.cst438.domain.FinalGradeJob;
 import com.cst438.domain.GradebookDTO;
+import com.cst438.domain.GradebookRow;
+import com.cst438.services.AssignmentOwnershipCache;
+import com.cst438.services.FinalGradeJobService;
+import com.cst438.services.FinalGradeOutboxService;
+import com.cst438.services.FinalGradeService;
+import com.cst438.services.GradeWriteService;
 import com.cst438.services.RegistrationService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -46,7 +66,8 @@ import org.springframework.test.context.ContextConfiguration;
  *  addFilters=false turns off security.  (I could not get security to work in test environment.)
  *  WebMvcTest is needed for test environment to create Repository classes.
  */
-@ContextConfiguration(classes = { GradeBookController.class })
+@ContextConfiguration(classes = { GradeBookController.class, AssignmentOwnershipCache.class, GradeWriteService.class,
+		FinalGradeService.class })
 @AutoConfigureMockMvc(addFilters = false)
 @WebMvcTest
 public class JunitTestGradebook {
@@ -68,9 +89,24 @@ public class JunitTestGradebook {
 	@MockBean
 	CourseRepository courseRepository; // must have this to keep Spring test happy
 
+	@MockBean
+	EnrollmentRepository enrollmentRepository;
+
+	@MockBean
+	EnrollmentGradeSummaryRepository enrollmentGradeSummaryRepository;
+
 	@MockBean
 	RegistrationService registrationService; // must have this to keep Spring test happy
 
+	@MockBean
+	FinalGradeOutboxService finalGradeOutboxService;
+
+	@MockBean
+	FinalGradeJobService finalGradeJobService;
+
+	@Autowired
+	AssignmentOwnershipCache ownershipCache;
+
 	@Autowired
 	private MockMvc mvc;
 
@@ -79,6 +115,9 @@ public class JunitTestGradebook {
 
 		MockHttpServletResponse response;
 
+		// the cache is shared by the tests, start without assignment 1 in it
+		ownershipCache.invalidate(1);
+
 		// mock database data
 
 		Course course = new Course();
@@ -105,16 +144,10 @@ public class JunitTestGradebook {
 		assignment.setName("Assignment 1");
 		assignment.setNeedsGrading(1);
 
-		AssignmentGrade ag = new AssignmentGrade();
-		ag.setAssignment(assignment);
-		ag.setId(1);
-		ag.setScore("");
-		ag.setStudentEnrollment(enrollment);
-
 		// given -- stubs for database repositories that return test data
 		given(assignmentRepository.findById(1)).willReturn(Optional.of(assignment));
-		given(assignmentGradeRepository.findByAssignmentIdAndStudentEmail(1, TEST_STUDENT_EMAIL)).willReturn(null);
-		given(assignmentGradeRepository.save(any())).willReturn(ag);
+		given(assignmentGradeRepository.findGradebookPage(eq(1), eq(TEST_COURSE_ID), isNull(), eq(0), any(), any()))
+				.willReturn(Collections.singletonList(gradebookRow(enrollment, null)));
 
 		// end of mock data
 
@@ -125,10 +158,10 @@ public class JunitTestGradebook {
 		// verify return data with entry for one student without no score
 		assertEquals(200, response.getStatus());
 
-		// verify that a save was called on repository
-		verify(assignmentGradeRepository, times(1)).save(any()); // ???
+		// verify that reading the gradebook did not insert an empty grade
+		verify(assignmentGradeRepository, times(0)).save(any());
 
-		// verify that returned data has non zero primary key
+		// verify that returned data has no grade primary key but identifies the enrollment
 		GradebookDTO result = fromJsonString(response.getContentAsString(), GradebookDTO.class);
 		// assignment id is 1
 		assertEquals(1, result.assignmentId);
@@ -136,11 +169,14 @@ public class JunitTestGradebook {
 		assertEquals(1, result.grades.size());
 		assertEquals(TEST_STUDENT_NAME, result.grades.get(0).name);
 		assertEquals("", result.grades.get(0).grade);
+		assertEquals(0, result.grades.get(0).assignmentGradeId);
+		assertEquals(TEST_COURSE_ID, result.grades.get(0).enrollmentId);
 
 		// change grade to score = 80
 		result.grades.get(0).grade = "80";
 
-		given(assignmentGradeRepository.findById(1)).willReturn(Optional.of(ag));
+		given(enrollmentRepository.findIdsInCourse(eq(TEST_COURSE_ID), any()))
+				.willReturn(Collections.singletonList(TEST_COURSE_ID));
 
 		// send updates to server
 		response = mvc
@@ -151,12 +187,14 @@ public class JunitTestGradebook {
 		// verify that return status = OK (value 200)
 		assertEquals(200, response.getStatus());
 
-		AssignmentGrade updatedag = new AssignmentGrade();
-		updatedag.setId(1);
-		updatedag.setScore("80");
+		// verify that the grade row was created by the upsert and not by save
+		verify(assignmentGradeRepository, times(0)).save(any());
+		verify(assignmentGradeRepository, times(1)).upsertScores(1, Collections.singletonMap(TEST_COURSE_ID, "80"));
+		verify(assignmentRepository, times(1)).refreshGradingStatus(Collections.singleton(1));
+		verify(enrollmentRepository, times(1)).sumScoresByIds(Collections.singleton(TEST_COURSE_ID));
 
-		// verify that repository saveAll method was called
-		verify(assignmentGradeRepository, times(1)).save(updatedag);
+		// the instructor check for the second request is answered from the ownership cache
+		verify(assignmentRepository, times(1)).findById(1);
 	}
 
 	@Test
@@ -198,8 +236,10 @@ public class JunitTestGradebook {
 
 		// given -- stubs for database repositories that return test data
 		given(assignmentRepository.findById(1)).willReturn(Optional.of(assignment));
-		given(assignmentGradeRepository.findByAssignmentIdAndStudentEmail(1, TEST_STUDENT_EMAIL)).willReturn(ag);
-		given(assignmentGradeRepository.findById(1)).willReturn(Optional.of(ag));
+		given(assignmentGradeRepository.findGradebookPage(eq(1), eq(TEST_COURSE_ID), isNull(), eq(0), any(), any()))
+				.willReturn(Collections.singletonList(gradebookRow(enrollment, ag)));
+		given(assignmentGradeRepository.findByAssignmentIdAndIdIn(1, Collections.singleton(1)))
+				.willReturn(Collections.singletonList(ag));
 
 		// end of mock data
 
@@ -235,12 +275,168 @@ public class JunitTestGradebook {
 		// verify that return status = OK (value 200)
 		assertEquals(200, response.getStatus());
 
-		// verify that repository save method was called
+		// verify that the changed grade was written with a single saveAll call
 		// AssignmentGrade must override equals method for this test for work !!!
 		AssignmentGrade updatedag = new AssignmentGrade();
 		updatedag.setId(1);
 		updatedag.setScore("88");
-		verify(assignmentGradeRepository, times(1)).save(updatedag);
+		verify(assignmentGradeRepository, times(1)).saveAll(Collections.singletonList(updatedag));
+		verify(assignmentRepository, times(1)).refreshGradingStatus(Collections.singleton(1));
+		verify(assignmentGradeRepository, times(0)).save(any());
+
+		// a grade missing from the request (null) leaves the score as it is
+		result.grades.get(0).grade = null;
+		response = mvc
+				.perform(MockMvcRequestBuilders.put("/gradebook/1").accept(MediaType.APPLICATION_JSON)
+						.content(asJsonString(result)).contentType(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse();
+		assertEquals(200, response.getStatus());
+		assertEquals("88", ag.getScore());
+		verify(assignmentGradeRepository, times(1)).findByAssignmentIdAndIdIn(anyInt(), any());
+		verify(assignmentGradeRepository, times(1)).saveAll(any());
+	}
+
+	@Test
+	public void gradebookPage() throws Exception {
+
+		MockHttpServletResponse response;
+
+		// mock database data
+
+		Course course = new Course();
+		course.setCourse_id(TEST_COURSE_ID);
+		course.setInstructor(TEST_INSTRUCTOR_EMAIL);
+
+		Assignment assignment = new Assignment();
+		assignment.setCourse(course);
+		assignment.setId(1);
+		assignment.setName("Assignment 1");
+
+		// a page of 1 is asked for, the query returns one extra row when there is a next page
+		given(assignmentRepository.findById(1)).willReturn(Optional.of(assignment));
+		given(assignmentGradeRepository.findGradebookPage(eq(1), eq(TEST_COURSE_ID), isNull(), eq(0), any(), any()))
+				.willReturn(Arrays.asList(new GradebookRow(7, "adam", "adam@csumb.edu", 3, "90"),
+						new GradebookRow(5, "beth", "beth@csumb.edu", null, null)));
+		given(assignmentGradeRepository.findGradebookPage(eq(1), eq(TEST_COURSE_ID), eq("adam"), eq(7), any(), any()))
+				.willReturn(Collections.singletonList(new GradebookRow(5, "beth", "beth@csumb.edu", null, null)));
+
+		// end of mock data
+
+		response = mvc.perform(MockMvcRequestBuilders.get("/gradebook/1?limit=1&fields=grade").accept(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse();
+		assertEquals(200, response.getStatus());
+
+		// only the requested fields besides the ids are returned
+		assertFalse(response.getContentAsString().contains("adam"));
+		GradebookDTO result = fromJsonString(response.getContentAsString(), GradebookDTO.class);
+		assertEquals(1, result.grades.size());
+		assertEquals(3, result.grades.get(0).assignmentGradeId);
+		assertEquals("90", result.grades.get(0).grade);
+		assertNotNull(result.nextCursor);
+		// one row more than the limit is read, and only the requested columns
+		verify(assignmentGradeRepository).findGradebookPage(1, TEST_COURSE_ID, null, 0, 2, Collections.singleton("grade"));
+
+		// the next page starts after the last row of the first one, and it is the last page
+		response = mvc.perform(MockMvcRequestBuilders.get("/gradebook/1?limit=1&after=" + result.nextCursor).accept(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse();
+		assertEquals(200, response.getStatus());
+		result = fromJsonString(response.getContentAsString(), GradebookDTO.class);
+		assertEquals(1, result.grades.size());
+		assertEquals("beth", result.grades.get(0).name);
+		assertEquals("", result.grades.get(0).grade);
+		assertEquals(0, result.grades.get(0).assignmentGradeId);
+		assertNull(result.nextCursor);
+
+		// a limit larger than a page may be is rejected
+		response = mvc.perform(MockMvcRequestBuilders.get("/gradebook/1?limit=100000").accept(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse();
+		assertEquals(400, response.getStatus());
+	}
+
+	@Test
+	public void calcFinalGrades() throws Exception {
+
+		MockHttpServletResponse response;
+
+		// mock database data
+
+		Course course = new Course();
+		course.setCourse_id(TEST_COURSE_ID);
+		course.setSemester(TEST_SEMESTER);
+		course.setYear(TEST_YEAR);
+		course.setInstructor(TEST_INSTRUCTOR_EMAIL);
+
+		// grade summaries: 2 scores averaging 85, and a student with no scores and no summary
+		EnrollmentGradeTotal graded = gradeTotal(TEST_STUDENT_EMAIL, TEST_STUDENT_NAME, 170.0, 2, "B");
+		EnrollmentGradeTotal ungraded = gradeTotal("other@csumb.edu", "other", null, 0, null);
+
+		given(courseRepository.findById(TEST_COURSE_ID)).willReturn(Optional.of(course));
+		given(enrollmentRepository.findGradeTotalsByCourse(TEST_COURSE_ID)).willReturn(Arrays.asList(graded, ungraded));
+
+		// end of mock data
+
+		response = mvc.perform(MockMvcRequestBuilders.post("/course/" + TEST_COURSE_ID + "/finalgrades"))
+				.andReturn().getResponse();
+
+		assertEquals(200, response.getStatus());
+
+		// verify the letter grades are queued for the registration service, not sent directly
+		ArgumentCaptor<CourseDTOG> captor = ArgumentCaptor.forClass(CourseDTOG.class);
+		verify(finalGradeOutboxService, times(1)).enqueue(captor.capture());
+		verify(registrationService, times(0)).sendFinalGrades(anyInt(), any());
+		CourseDTOG cdto = captor.getValue();
+		assertEquals(TEST_COURSE_ID, cdto.course_id);
+		assertEquals(2, cdto.grades.size());
+		assertEquals(TEST_STUDENT_EMAIL, cdto.grades.get(0).student_email);
+		assertEquals("B", cdto.grades.get(0).grade);
+		assertEquals("F", cdto.grades.get(1).grade);
+	}
+
+	@Test
+	public void calcFinalGradesAsync() throws Exception {
+
+		MockHttpServletResponse response;
+
+		// mock database data
+
+		Course course = new Course();
+		course.setCourse_id(TEST_COURSE_ID);
+		course.setSemester(TEST_SEMESTER);
+		course.setYear(TEST_YEAR);
+		course.setInstructor(TEST_INSTRUCTOR_EMAIL);
+
+		FinalGradeJob job = new FinalGradeJob("job-1", TEST_COURSE_ID);
+
+		given(courseRepository.findById(TEST_COURSE_ID)).willReturn(Optional.of(course));
+		given(finalGradeJobService.startCourse(TEST_COURSE_ID, null)).willReturn(job);
+
+		// end of mock data
+
+		response = mvc.perform(MockMvcRequestBuilders.post("/course/" + TEST_COURSE_ID + "/finalgrades?async=true"))
+				.andReturn().getResponse();
+
+		// accepted right away with the job, nothing is calculated in the request
+		assertEquals(202, response.getStatus());
+		assertEquals("/finalgrades/jobs/job-1", response.getHeader("Location"));
+		assertEquals("job-1", new ObjectMapper().readTree(response.getContentAsString()).get("id").asText());
+		verify(finalGradeJobService, times(1)).startCourse(TEST_COURSE_ID, null);
+		verify(enrollmentRepository, times(0)).findGradeTotalsByCourse(anyInt());
+		verify(finalGradeOutboxService, times(0)).enqueue(any());
+	}
+
+	private static GradebookRow gradebookRow(Enrollment e, AssignmentGrade ag) {
+		return new GradebookRow(e.getId(), e.getStudentName(), e.getStudentEmail(),
+				(ag == null) ? null : ag.getId(), (ag == null) ? null : ag.getScore());
+	}
+
+	private static EnrollmentGradeTotal gradeTotal(String email, String name, Double total, long count, String letter) {
+		return new EnrollmentGradeTotal() {
+			public String getStudentEmail() { return email; }
+			public String getStudentName() { return name; }
+			public Double getScoreTotal() { return total; }
+			public long getScoreCount() { return count; }
+			public String getLetterGrade() { return letter; }
+		};
 	}
 
 	private static String asJsonString(final Object obj) {
@@ -0,0 +1,92 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cst438.domain.EnrollmentDTO;
+import com.cst438.services.EnrollmentIngestService;
+import com.cst438.services.RegistrationServiceMQ;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * a batch of enrollment messages that can not be inserted must not be requeued 
+ * forever: its messages are inserted one at a time and the bad ones dropped.
+ */
+@ExtendWith(MockitoExtension.class)
+public class RegistrationServiceMQTest {
+
+	@Mock
+	EnrollmentIngestService enrollmentIngestService;
+
+	@InjectMocks
+	RegistrationServiceMQ registrationService;
+
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@BeforeEach
+	public void setup() {
+		ReflectionTestUtils.setField(registrationService, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(registrationService, "meterRegistry", meterRegistry);
+	}
+
+	@Test
+	public void badRowInBatchIsDroppedAlone() throws Exception {
+		EnrollmentDTO good = new EnrollmentDTO("good@csumb.edu", "good", 1);
+		EnrollmentDTO bad = new EnrollmentDTO("bad@csumb.edu", "bad", 1);
+		given(enrollmentIngestService.enrollAll(anyList())).willAnswer(invocation -> {
+			List<EnrollmentDTO> batch = invocation.getArgument(0);
+			if (batch.size() > 1) {
+				throw new DataIntegrityViolationException("value too long");
+			}
+			if (batch.get(0).studentEmail.equals("bad@csumb.edu")) {
+				throw new DataIntegrityViolationException("value too long");
+			}
+			return Collections.singletonList(EnrollmentIngestService.ACCEPTED);
+		});
+
+		registrationService.receive(Arrays.asList(message(good), message(bad)));
+
+		// the batch once, then each enrollment on its own; the listener does not throw so the batch is acked
+		verify(enrollmentIngestService, times(1)).enrollAll(Arrays.asList(good, bad));
+		verify(enrollmentIngestService, times(1)).enrollAll(Collections.singletonList(good));
+		verify(enrollmentIngestService, times(1)).enrollAll(Collections.singletonList(bad));
+		assertEquals(1.0, meterRegistry.get("gradebook.enrollment.inserted").counter().count());
+		assertEquals(2.0, meterRegistry.get("gradebook.enrollment.messages").counter().count());
+	}
+
+	@Test
+	public void transientFailureRequeuesBatch() throws Exception {
+		EnrollmentDTO e = new EnrollmentDTO("good@csumb.edu", "good", 1);
+		given(enrollmentIngestService.enrollAll(anyList())).willThrow(new QueryTimeoutException("timeout"));
+
+		assertThrows(QueryTimeoutException.class, () -> registrationService.receive(Collections.singletonList(message(e))));
+		verify(enrollmentIngestService, times(1)).enrollAll(anyList());
+	}
+
+	private static Message message(EnrollmentDTO e) throws Exception {
+		return new Message(new ObjectMapper().writeValueAsBytes(e), new MessageProperties());
+	}
+
+}
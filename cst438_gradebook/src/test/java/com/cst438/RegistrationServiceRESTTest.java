@@ -0,0 +1,71 @@
+package com.cst438;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.willAnswer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.cst438.domain.CourseDTOG;
+import com.cst438.services.RegistrationServiceREST;
+
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+
+/*
+ * a send that takes longer than the call timeout is given up: the caller gets 
+ * an error and the bulkhead thread running it is interrupted.
+ */
+@ExtendWith(MockitoExtension.class)
+public class RegistrationServiceRESTTest {
+
+	@Mock
+	RestTemplate restTemplate;
+
+	@InjectMocks
+	RegistrationServiceREST registrationService;
+
+	@BeforeEach
+	public void setup() {
+		ReflectionTestUtils.setField(registrationService, "retryRegistry", RetryRegistry.ofDefaults());
+		ReflectionTestUtils.setField(registrationService, "circuitBreakerRegistry", CircuitBreakerRegistry.ofDefaults());
+		ReflectionTestUtils.setField(registrationService, "bulkheadRegistry", ThreadPoolBulkheadRegistry.ofDefaults());
+		ReflectionTestUtils.setField(registrationService, "registration_url", "http://localhost:8081");
+		ReflectionTestUtils.setField(registrationService, "callTimeoutMs", 200L);
+	}
+
+	@Test
+	public void timedOutSendIsInterrupted() throws Exception {
+		CountDownLatch interrupted = new CountDownLatch(1);
+		willAnswer(invocation -> {
+			try {
+				Thread.sleep(10000);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+				Thread.currentThread().interrupt();
+				throw new ResourceAccessException("interrupted");
+			}
+			return null;
+		}).given(restTemplate).put(anyString(), any(CourseDTOG.class));
+
+		IllegalStateException e = assertThrows(IllegalStateException.class,
+				() -> registrationService.sendFinalGrades(123456, new CourseDTOG()));
+		assertTrue(e.getMessage().contains("timed out"));
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+	}
+
+}